@@ -1,24 +1,42 @@
 package io.github.crudzilla;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import io.github.crudzilla.persistency.CRUDZillaEntity;
 import io.github.crudzilla.persistency.EntityNotFoundException;
+import io.github.crudzilla.persistency.JPAUtils;
 import io.github.crudzilla.pojo.AutocompleteOption;
+import io.github.crudzilla.pojo.MultiSearchItem;
 import io.github.crudzilla.pojo.MultiselectOption;
 import io.github.crudzilla.pojo.SelectOption;
+import io.github.crudzilla.querybuilder.CRUDZillaFilter;
 import io.github.crudzilla.querybuilder.QueryBuilderJPASQL;
 import io.github.crudzilla.querybuilder.QueryResult;
+import org.hibernate.Hibernate;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -30,11 +48,19 @@ public class CRUDZilla {
 
     private final EntityReflections entityReflections;
     private final ObjectMapper mapper;
+    private final CRUDZillaSecurity crudZillaSecurity;
+    private final CRUDZillaExecutor crudZillaExecutor;
+    @Lazy
+    @Autowired
+    private CRUDZilla self;
 
     @Autowired
-    public CRUDZilla(EntityReflections entityReflections, ObjectMapper mapper) {
+    public CRUDZilla(EntityReflections entityReflections, ObjectMapper mapper, CRUDZillaSecurity crudZillaSecurity,
+                     CRUDZillaExecutor crudZillaExecutor) {
         this.entityReflections = entityReflections;
         this.mapper = mapper;
+        this.crudZillaSecurity = crudZillaSecurity;
+        this.crudZillaExecutor = crudZillaExecutor;
     }
 
     @Transactional
@@ -46,6 +72,73 @@ public class CRUDZilla {
         return save(entidadeClass, form, null);
     }
 
+    /**
+     * Saves the form read straight from the request body. The form class is resolved from the key before
+     * reading the body, so the payload is never buffered as a String. The body is read before the transaction
+     * starts, so a slow upload doesn't hold a database connection.
+     *
+     * @throws CRUDZillaPayloadTooLarge when the body is larger than {@link CRUDZillaGlobalConfig#maxSaveBodySize()}.
+     */
+    public CRUDZillaEntity save(String key, InputStream body) throws IOException {
+        var entidadeClass = entityReflections.getEntityClass(key);
+        var formClass = entityReflections.getFormClass(entidadeClass);
+        CRUDZillaForm form = readBody(body, mapper.constructType(formClass));
+
+        return self().save(key, form);
+    }
+
+    @Transactional
+    public CRUDZillaEntity save(String key, CRUDZillaForm form) {
+        return save(entityReflections.getEntityClass(key), form, null);
+    }
+
+    /**
+     * Inserts or updates, without loading them, the entities of the forms in the body (a JSON array). Only for flat
+     * entities with ids assigned by the application, see {@link io.github.crudzilla.persistency.AbstractRepositoryJPA#upsert}.
+     * The body is read before the transaction starts.
+     *
+     * @return the number of entities saved.
+     * @throws CRUDZillaPayloadTooLarge when the body is larger than {@link CRUDZillaGlobalConfig#maxSaveBodySize()}.
+     */
+    public int upsert(String key, InputStream body) throws IOException {
+        var entidadeClass = entityReflections.getEntityClass(key);
+        var formClass = entityReflections.getFormClass(entidadeClass);
+        List<CRUDZillaForm> forms = readBody(body, mapper.getTypeFactory().constructCollectionType(List.class, formClass));
+
+        return self().upsert(key, forms);
+    }
+
+    @Transactional
+    public int upsert(String key, List<? extends CRUDZillaForm> forms) {
+        var entidadeClass = entityReflections.getEntityClass(key);
+        var entidadeBuilder = entityReflections.getEntityBuilder(entidadeClass);
+        var entities = new ArrayList<CRUDZillaEntity>(forms.size());
+        for (CRUDZillaForm form : forms) {
+            entities.add(entidadeBuilder.buildNew(form, entityReflections.getNewEntity(entidadeClass)));
+        }
+        return entityReflections.getRepository(entidadeClass).upsert(entities);
+    }
+
+    //Without WRAP_EXCEPTIONS, the CRUDZillaPayloadTooLarge thrown while Jackson reads a property isn't turned into a
+    //JsonMappingException, which the controller would answer with 400 instead of 413
+    private <T> T readBody(InputStream body, JavaType type) throws IOException {
+        var maxBodySize = entityReflections.getGlobalConfig().maxSaveBodySize();
+        try {
+            return mapper.readerFor(type).without(DeserializationFeature.WRAP_EXCEPTIONS)
+                    .readValue(maxBodySize > 0 ? new LimitedInputStream(body, maxBodySize) : body);
+        } catch (JsonMappingException e) {
+            if (e.getCause() instanceof CRUDZillaPayloadTooLarge) {
+                throw (CRUDZillaPayloadTooLarge) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    //The Spring proxy, so the @Transactional of the methods called internally applies
+    private CRUDZilla self() {
+        return self != null ? self : this;
+    }
+
     CRUDZillaEntity save(Class<? extends CRUDZillaEntity<?>> entidadeClass, CRUDZillaForm form, Consumer<CRUDZillaEntity> doBeforeSave) {
         return this.save(entidadeClass, form,doBeforeSave,false);
     }
@@ -60,7 +153,7 @@ public class CRUDZilla {
             entity = entityReflections.getNewEntity(entidadeClass);
             entity = entidadeBuilder.buildNew(form, entity);
         } else {
-            entity = repository.getEagerLoaded(form.getId());
+            entity = repository.getForUpdate(form.getId(), entidadeBuilder.getFormAssociations(form.getClass(), entidadeClass));
             entidadeBuilder.buildExisting(form, entity);
         }
 
@@ -78,12 +171,75 @@ public class CRUDZilla {
         repository.remove(repository.convertId(idString));
     }
 
+    @Transactional(readOnly = true)
     public CRUDZillaEntity getById(String key, String idString) {
         var entidadeClass = entityReflections.getEntityClass(key);
         var repository = entityReflections.getRepository(entidadeClass);
         return repository.getEagerLoaded(repository.convertId(idString));
     }
 
+    /**
+     * ETag of the current version of an entity, computed without loading it.
+     *
+     * @return the ETag, or null when the entity isn't versioned.
+     */
+    @Transactional(readOnly = true)
+    public String getETag(String key, String idString) {
+        var entidadeClass = entityReflections.getEntityClass(key);
+        var repository = entityReflections.getRepository(entidadeClass);
+        var version = repository.getVersion(repository.convertId(idString));
+        return version == null ? null : idString + "-" + version;
+    }
+
+    /**
+     * ETag of the current version of all the entities of a key, computed without loading them.
+     *
+     * @return the ETag, or null when the entity isn't versioned or getAll is disabled.
+     */
+    @Transactional(readOnly = true)
+    public String getAllETag(String key) {
+        var clazzName = entityReflections.getEntityClass(key);
+        if (entityReflections.isGetAllDisabled(clazzName)) {
+            return null;
+        }
+        var version = entityReflections.getRepository(clazzName).getAllVersion();
+        return version == null ? null : "all-" + version;
+    }
+
+    /**
+     * Returns only the requested fields of an entity. The entity is loaded lazily, so the associations
+     * that weren't requested are never loaded. Only the properties Jackson would serialize can be requested,
+     * so <code>@JsonIgnore</code> properties stay hidden.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getById(String key, String idString, List<String> fields) {
+        var entidadeClass = entityReflections.getEntityClass(key);
+        var repository = entityReflections.getRepository(entidadeClass);
+        var entity = Hibernate.unproxy(repository.get(repository.convertId(idString)));
+        var properties = new HashMap<String, BeanPropertyDefinition>();
+        for (BeanPropertyDefinition property : mapper.getSerializationConfig()
+                .introspect(mapper.constructType(entidadeClass)).findProperties()) {
+            if (property.couldSerialize() && property.getAccessor() != null) {
+                properties.put(property.getName(), property);
+            }
+        }
+        var result = new LinkedHashMap<String, Object>();
+        result.put("id", ((CRUDZillaEntity<?>) entity).getId());
+        for (String field : fields) {
+            var property = properties.get(field);
+            if (property == null) {
+                throw new CRUDZillaFieldNotFound();
+            }
+            var value = Hibernate.unproxy(property.getAccessor().getValue(entity));
+            if (value != null && !BeanUtils.isSimpleValueType(value.getClass())) {
+                JPAUtils.initializeObject(value);
+            }
+            result.put(field, value);
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
     public Collection<CRUDZillaEntity> getAll(String key) {
         var clazzName = entityReflections.getEntityClass(key);
         if (entityReflections.isGetAllDisabled(clazzName)) {
@@ -93,6 +249,7 @@ public class CRUDZilla {
         return repository.getAll();
     }
 
+    @Transactional(readOnly = true)
     public List<AutocompleteOption> getAutocompleteByTerm(String key, String termo) {
         var clazzName = entityReflections.getEntityClass(key);
         var repository = entityReflections.getRepository(clazzName);
@@ -107,6 +264,7 @@ public class CRUDZilla {
                 .collect(toList());
     }
 
+    @Transactional(readOnly = true)
     public List<AutocompleteOption> getAutocompleteByTermActive(String key, String termo) {
         var clazzName = entityReflections.getEntityClass(key);
         var repository = entityReflections.getRepository(clazzName);
@@ -121,6 +279,7 @@ public class CRUDZilla {
                 .collect(toList());
     }
 
+    @Transactional(readOnly = true)
     public List<AutocompleteOption> getAutocompleteByIds(String key, List<String> idsString) {
         var clazzName = entityReflections.getEntityClass(key);
         var repository = entityReflections.getRepository(clazzName);
@@ -135,6 +294,7 @@ public class CRUDZilla {
                 .collect(toList());
     }
 
+    @Transactional(readOnly = true)
     public Collection<MultiselectOption> getAllMultiselect(String key) {
         return getAll(key)
                 .stream()
@@ -156,14 +316,71 @@ public class CRUDZilla {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     @SuppressWarnings({"rawtypes", "unchecked"})
     public QueryResult<Object> search(String key, Map<String, String> filtroParams) throws JsonProcessingException {
         var filtroClass = entityReflections.getFilterClassFromKey(key);
         QueryBuilderJPASQL queryBuilder = entityReflections.getQueryBuilder(filtroClass);
         var filter = mapper.readValue(mapper.writeValueAsString(filtroParams), filtroClass);
+        applyPageSizeLimit(entityReflections.getEntityClass(key), filter);
         return queryBuilder.build(filter);
     }
 
+    /**
+     * Runs the searches in parallel on the {@link CRUDZillaExecutor}, each one like {@link #search(String, Map)}, and
+     * returns the results in the same order. The security context of the caller goes along with each search, and
+     * each one runs in its own read-only transaction.
+     */
+    public List<QueryResult<Object>> multiSearch(List<MultiSearchItem> items) throws JsonProcessingException {
+        var crudZilla = self();
+        var tasks = new ArrayList<Callable<QueryResult<Object>>>(items.size());
+        for (MultiSearchItem item : items) {
+            tasks.add(new DelegatingSecurityContextCallable<>(() -> crudZilla.search(item.getKey(), item.getFilter())));
+        }
+        try {
+            return crudZillaExecutor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the searches", e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof JsonProcessingException) {
+                throw (JsonProcessingException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Reduces the page size to the {@link CRUDZillaConfig#maxPageSize()} of the entity, or to the
+     * {@link CRUDZillaConfig#largePageMaxSize()} when the user has the {@link CRUDZillaConfig#largePageAuthority()}.
+     * The limit also goes to {@link CRUDZillaFilter#setMaxPageSize(int)}, which the query builder enforces.
+     *
+     * @throws CRUDZillaInvalidPageSize for negative page sizes, which would fetch all the rows.
+     */
+    void applyPageSizeLimit(Class<? extends CRUDZillaEntity<?>> entidadeClass, CRUDZillaFilter filter) {
+        var pageSize = filter.getPageSize();
+        if (pageSize < 0) {
+            throw new CRUDZillaInvalidPageSize();
+        }
+        var config = entityReflections.getConfig(entidadeClass);
+        filter.setLargePage(false);
+        filter.setMaxPageSize(config.maxPageSize());
+        if (pageSize <= config.maxPageSize()) {
+            return;
+        }
+        if (config.largePageMaxSize() > config.maxPageSize() && crudZillaSecurity.hasAuthority(config.largePageAuthority())) {
+            filter.setPageSize(Math.min(pageSize, config.largePageMaxSize()));
+            filter.setLargePage(true);
+            filter.setMaxPageSize(config.largePageMaxSize());
+        } else {
+            filter.setPageSize(config.maxPageSize());
+        }
+    }
+
     public Object getProjection(String key, String projection, String params) {
         var repository = entityReflections.getRepository(key);
         var declaredMethods = repository.getClass().getDeclaredMethods();
@@ -181,12 +398,23 @@ public class CRUDZilla {
         throw new CRUDZillaProjectionNotFound();
     }
 
+    /**
+     * Toggles the active flag of an entity, without checking its version.
+     */
     @Transactional
     public void toggleActive(String key, String idString) {
+        toggleActive(key, idString, null);
+    }
+
+    /**
+     * Toggles the active flag of an entity, with a single update when the repository supports it.
+     *
+     * @param version the version the client has, or null to skip the optimistic concurrency check.
+     */
+    @Transactional
+    public void toggleActive(String key, String idString, String version) {
         var entidadeClass = entityReflections.getEntityClass(key);
         var repository = entityReflections.getRepository(entidadeClass);
-        var entity =  repository.getEagerLoaded(repository.convertId(idString));
-        entity.setActive(!entity.isActive());
-        repository.put(entity);
+        repository.toggleActive(repository.convertId(idString), version);
     }
 }
@@ -0,0 +1,47 @@
+package io.github.crudzilla;
+
+import org.reflections.Reflections;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hibernate settings that put the entities marked with {@link CRUDZillaConfig#cacheableReference()} in the
+ * second-level cache, using a local JCache provider (hibernate-jcache and a JCache implementation, like Ehcache or
+ * Caffeine, must be on the classpath). Add them to the JPA properties of the EntityManagerFactory:
+ * <pre>
+ * properties.putAll(CRUDZillaCacheSettings.of("com.myapp.domain"));
+ * </pre>
+ * Only the marked entities are cached, each one in its own read-write region, and the query cache is enabled for
+ * their getAll. Saves, deletes and toggles through CRUDZilla keep the cache up to date.
+ */
+public final class CRUDZillaCacheSettings {
+
+    private static final String CLASS_CACHE_PREFIX = "hibernate.classcache.";
+    private static final String CACHE_USAGE = "read-write";
+
+    private CRUDZillaCacheSettings() {/* Hide do construtor de classe utilitária */ }
+
+    public static Map<String, Object> of(String scanPackage) {
+        return of(new Reflections(scanPackage).getTypesAnnotatedWith(CRUDZillaConfig.class));
+    }
+
+    static Map<String, Object> of(Collection<Class<?>> annotatedClasses) {
+        var settings = new LinkedHashMap<String, Object>();
+        for (Class<?> annotatedClass : annotatedClasses) {
+            if (annotatedClass.getAnnotation(CRUDZillaConfig.class).cacheableReference()) {
+                settings.put(CLASS_CACHE_PREFIX + annotatedClass.getName(), CACHE_USAGE);
+            }
+        }
+        if (settings.isEmpty()) {
+            return settings;
+        }
+        settings.put("hibernate.cache.use_second_level_cache", "true");
+        settings.put("hibernate.cache.use_query_cache", "true");
+        settings.put("hibernate.cache.region.factory_class", "jcache");
+        //local provider: the regions are created on demand instead of declared in a cache configuration file
+        settings.put("hibernate.javax.cache.missing_cache_strategy", "create");
+        return settings;
+    }
+}
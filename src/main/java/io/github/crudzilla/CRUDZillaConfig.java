@@ -14,4 +14,27 @@ public @interface CRUDZillaConfig {
     boolean disableGetAll() default false;
 
     CRUDZillaEntidadeSecurity[] security() default {};
+
+    /**
+     * Max page size of the searches. Larger page sizes are reduced to it.
+     */
+    int maxPageSize() default 100;
+
+    /**
+     * Max page size of the searches made by users with the {@link #largePageAuthority()}. They are fetched with a larger
+     * JDBC fetch size, but the whole page is still loaded in memory. Zero disables the large pages.
+     */
+    int largePageMaxSize() default 0;
+
+    /**
+     * Spring Security authority required for the large pages, usually granted only to service accounts.
+     */
+    String largePageAuthority() default "";
+
+    /**
+     * Marks a reference entity (rarely changed and looked up on most saves, like types and categories) to be kept in
+     * the Hibernate second-level cache, along with the results of its getAll. Requires the settings of
+     * {@link CRUDZillaCacheSettings} on the EntityManagerFactory.
+     */
+    boolean cacheableReference() default false;
 }
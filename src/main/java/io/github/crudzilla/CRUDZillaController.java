@@ -5,16 +5,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.crudzilla.persistency.CRUDZillaEntity;
 import io.github.crudzilla.persistency.InvalidEntityException;
 import io.github.crudzilla.pojo.AutocompleteOption;
+import io.github.crudzilla.pojo.MultiSearchItem;
 import io.github.crudzilla.pojo.MultiselectOption;
 import io.github.crudzilla.pojo.SelectOption;
 import io.github.crudzilla.querybuilder.QueryResult;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -23,13 +30,17 @@ import java.util.Map;
 @RestController
 public class CRUDZillaController {
 
+    private static final int MAX_MULTI_SEARCH_ITEMS = 20;
+
     private final ObjectMapper mapper;
     private final CRUDZilla crudZilla;
+    private final CRUDZillaSecurity crudZillaSecurity;
 
     @Autowired
-    public CRUDZillaController(ObjectMapper mapper, CRUDZilla crudZilla) {
+    public CRUDZillaController(ObjectMapper mapper, CRUDZilla crudZilla, CRUDZillaSecurity crudZillaSecurity) {
         this.mapper = mapper;
         this.crudZilla = crudZilla;
+        this.crudZillaSecurity = crudZillaSecurity;
     }
 
     //O XHR do javascript não suporta Body em mensagens GET, então o filtro tem q ir como params.
@@ -51,15 +62,36 @@ public class CRUDZillaController {
 
     }
 
+    //Várias consultas numa requisição só, para telas que carregam muitas listagens de uma vez.
+    //Cada item tem a sua própria checagem de segurança, como na consulta simples.
+    @ApiOperation(value = "Consulta de várias Entidades", notes = "Executa em paralelo até 20 consultas de entidades.", tags = "Entidades")
+    @PostMapping(value = "/api/auth/crudzilla/_multi", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> multiSearch(@RequestBody List<MultiSearchItem> items) throws Exception {
+        if (items.size() > MAX_MULTI_SEARCH_ITEMS) {
+            return ResponseEntity.badRequest().body("No máximo " + MAX_MULTI_SEARCH_ITEMS + " consultas por requisição");
+        }
+        for (MultiSearchItem item : items) {
+            if (!crudZillaSecurity.check(item.getKey(), CRUDZillaOperations.SEARCH)) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+        }
+
+        try {
+            return ResponseEntity.ok(crudZilla.multiSearch(items));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @ApiOperation(value = "Salvar Entidade", notes = "Salvar uma <Entidade> nova ou edita uma existente.", tags = "Entidades")
     @PostMapping(value="/api/auth/crudzilla/{key}", consumes = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("@crudZillaSecurity.check(#key, T(io.github.crudzilla.CRUDZillaOperations).SAVE)")
     public ResponseEntity<?> save(
             @PathVariable String key,
-            @RequestBody String formString
-    ) {
+            InputStream body
+    ) throws IOException {
         try {
-            var entity = crudZilla.save(key, formString);
+            var entity = crudZilla.save(key, body);
             return ResponseEntity.ok(entity.getId());
         } catch (JsonProcessingException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -68,11 +100,28 @@ public class CRUDZillaController {
         }
     }
 
+    @ApiOperation(value = "Inserir ou Alterar Entidades", notes = "Insere ou altera uma lista de <Entidade>s simples, sem consultá-las antes.", tags = "Entidades")
+    @PostMapping(value="/api/auth/crudzilla/{key}/upsert", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("@crudZillaSecurity.check(#key, T(io.github.crudzilla.CRUDZillaOperations).SAVE)")
+    public ResponseEntity<?> upsert(
+            @PathVariable String key,
+            InputStream body
+    ) throws IOException {
+        try {
+            return ResponseEntity.ok(crudZilla.upsert(key, body));
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (InvalidEntityException e) {
+            return ResponseEntity.badRequest().body(e.getMensagens());
+        }
+    }
+
     @ApiOperation(value = "Ativar ou Desativar Entidade", tags = "Entidades")
     @PostMapping(value="/api/auth/crudzilla/{key}/{id}/toggle-active", consumes = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("@crudZillaSecurity.check(#key, T(io.github.crudzilla.CRUDZillaOperations).SAVE)")
-    public ResponseEntity<?> toggleActive(@PathVariable String key, @PathVariable String id) {
-        crudZilla.toggleActive(key, id);
+    public ResponseEntity<?> toggleActive(@PathVariable String key, @PathVariable String id,
+                                          @RequestParam(required = false) String version) {
+        crudZilla.toggleActive(key, id, version);
         return ResponseEntity.ok().build();
     }
 
@@ -89,17 +138,45 @@ public class CRUDZillaController {
     @ApiOperation(value = "Consulta de Entidade por ID", tags = "Entidades")
     @GetMapping(value = "/api/auth/crudzilla/{key}/{idString}")
     @PreAuthorize("@crudZillaSecurity.check(#key, T(io.github.crudzilla.CRUDZillaOperations).GET_BY_ID)")
-    public CRUDZillaEntity getById(@PathVariable String key, @PathVariable String idString) {
-        return crudZilla.getById(key, idString);
+    public Object getById(
+            @PathVariable String key,
+            @PathVariable String idString,
+            @RequestParam(required = false) List<String> fields,
+            WebRequest request,
+            HttpServletResponse response
+    ) {
+        var isSparse = fields != null && !fields.isEmpty();
+        var eTag = crudZilla.getETag(key, idString);
+        if (eTag != null && isSparse) {
+            //Each field selection is a different representation of the entity
+            eTag = eTag + "-" + Integer.toHexString(fields.hashCode());
+        }
+        if (isNotModified(request, response, eTag)) {
+            return null;
+        }
+        return isSparse ? crudZilla.getById(key, idString, fields) : crudZilla.getById(key, idString);
     }
 
     @ApiOperation(value = "Obtém todas Entidades", tags = "Entidades")
     @GetMapping(value = "/api/auth/crudzilla/{key}/all")
     @PreAuthorize("@crudZillaSecurity.check(#key, T(io.github.crudzilla.CRUDZillaOperations).GET_ALL)")
-    public Collection<CRUDZillaEntity> getAll(@PathVariable String key) {
+    public Collection<CRUDZillaEntity> getAll(@PathVariable String key, WebRequest request, HttpServletResponse response) {
+        var eTag = crudZilla.getAllETag(key);
+        if (isNotModified(request, response, eTag)) {
+            return null;
+        }
         return crudZilla.getAll(key);
     }
 
+    //JSON, Smile and CBOR bodies share the ETag, so caches must keep one copy per Accept
+    private static boolean isNotModified(WebRequest request, HttpServletResponse response, String eTag) {
+        if (eTag == null) {
+            return false;
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return request.checkNotModified(eTag);
+    }
+
     @GetMapping(value = "/api/auth/crudzilla/{key}/autocomplete", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
     public <E extends CRUDZillaEntity<K>, K> List<AutocompleteOption> autocomplete(@PathVariable String key, @RequestParam String q) {
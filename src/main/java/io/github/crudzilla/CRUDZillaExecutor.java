@@ -0,0 +1,100 @@
+package io.github.crudzilla;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for the work CRUDZilla dispatches by itself. Based on {@link CRUDZillaGlobalConfig#virtualThreads()} it runs
+ * the tasks on virtual threads (when the JVM supports them) or on a fixed pool of platform threads. In both cases no more
+ * than {@link CRUDZillaGlobalConfig#maxConcurrency()} tasks run at the same time.
+ */
+@Service
+public class CRUDZillaExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CRUDZillaExecutor.class);
+
+    private final ExecutorService executorService;
+    private final Semaphore permits;
+    private final boolean virtualThreads;
+
+    @Autowired
+    public CRUDZillaExecutor(EntityReflections entityReflections) {
+        var globalConfig = entityReflections.getGlobalConfig();
+        var maxConcurrency = Math.max(1, globalConfig.maxConcurrency());
+        this.permits = new Semaphore(maxConcurrency);
+        var virtualExecutor = globalConfig.virtualThreads() ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtualExecutor != null;
+        this.executorService = virtualThreads ? virtualExecutor : newPlatformThreadExecutor(maxConcurrency);
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Executes all the tasks and waits for them to finish. The results are returned in the same order of the tasks.
+     *
+     * @throws ExecutionException with the first exception thrown by a task.
+     */
+    public <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        var futures = new ArrayList<Future<T>>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(executorService.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return task.call();
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            var results = new ArrayList<T>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    //The lib targets Java 17, so the virtual threads factory is looked up at runtime
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Virtual threads are not supported by this JVM, CRUDZilla will use platform threads");
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor(int maxConcurrency) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            var thread = new Thread(runnable, "crudzilla-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.crudzilla;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Field não encontrado para essa entidade")
+public class CRUDZillaFieldNotFound extends RuntimeException {
+}
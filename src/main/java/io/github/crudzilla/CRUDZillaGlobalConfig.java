@@ -18,4 +18,20 @@ public @interface CRUDZillaGlobalConfig {
 
     String appPackagePrefix() default ".app";
 
+    /**
+     * Runs the tasks CRUDZilla dispatches by itself (like parallel searches) on virtual threads.
+     * Only takes effect when the JVM supports them (JDK 21+), otherwise platform threads are used.
+     */
+    boolean virtualThreads() default false;
+
+    /**
+     * Max number of CRUDZilla tasks running at the same time. Keep it at or below the connection pool size.
+     */
+    int maxConcurrency() default 8;
+
+    /**
+     * Max size, in bytes, of the body accepted when saving an entity. Zero or less, the default, means no limit.
+     */
+    long maxSaveBodySize() default 0;
+
 }
@@ -0,0 +1,8 @@
+package io.github.crudzilla;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Tamanho de página inválido")
+public class CRUDZillaInvalidPageSize extends RuntimeException {
+}
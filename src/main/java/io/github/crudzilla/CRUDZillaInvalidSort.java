@@ -0,0 +1,12 @@
+package io.github.crudzilla;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Ordenação não permitida para essa entidade")
+public class CRUDZillaInvalidSort extends RuntimeException {
+
+    public CRUDZillaInvalidSort(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.crudzilla;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.PAYLOAD_TOO_LARGE, reason = "Corpo da requisição maior que o permitido")
+public class CRUDZillaPayloadTooLarge extends RuntimeException {
+}
@@ -0,0 +1,21 @@
+package io.github.crudzilla;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the attributes of an entity searched by the default getByTerm and getByTermActive of the repositories (the
+ * autocompletes). Mark only indexed columns: the terms are matched first as a prefix, which can use the index.
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CRUDZillaSearchField {
+
+    /**
+     * The column holds a normalized copy of the text (lower case and without accents), so the term is normalized the
+     * same way instead of applying functions to the column, which would prevent the use of its index.
+     */
+    boolean normalized() default false;
+}
@@ -59,11 +59,20 @@ public class CRUDZillaSecurity {
             return operationReflections.executeSpelOperation(securityOperation.get());
         }
 
-        Collection<? extends GrantedAuthority> authorities = SecurityContextHolder.getContext().getAuthentication().getAuthorities();
+        return hasAuthority(securityOperation.get().value());
+    }
+
+    public boolean hasAuthority(String authority) {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authority.isEmpty()) {
+            return false;
+        }
+
+        Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
         if (CollectionUtils.isEmpty(authorities)) {
             return false;
         }
 
-        return authorities.stream().map(GrantedAuthority::getAuthority).anyMatch(x-> x.equals(securityOperation.get().value()));
+        return authorities.stream().map(GrantedAuthority::getAuthority).anyMatch(x-> x.equals(authority));
     }
 }
@@ -0,0 +1,97 @@
+package io.github.crudzilla;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Adds Smile ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor}) as alternatives to JSON,
+ * selected by the {@code Accept} header. Each format is enabled only when its jackson-dataformat is on the classpath.
+ */
+@Configuration
+public class CRUDZillaWebConfig implements WebMvcConfigurer {
+
+    private static final ClassLoader CLASS_LOADER = CRUDZillaWebConfig.class.getClassLoader();
+    private static final boolean SMILE_PRESENT = ClassUtils.isPresent("com.fasterxml.jackson.dataformat.smile.SmileFactory", CLASS_LOADER);
+    private static final boolean CBOR_PRESENT = ClassUtils.isPresent("com.fasterxml.jackson.dataformat.cbor.CBORFactory", CLASS_LOADER);
+
+    private final ObjectMapper mapper;
+
+    @Autowired
+    public CRUDZillaWebConfig(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        if (SMILE_PRESENT) {
+            replaceOrAdd(converters, SmileConverter.TYPE, SmileConverter.create(this));
+        }
+        if (CBOR_PRESENT) {
+            replaceOrAdd(converters, CborConverter.TYPE, CborConverter.create(this));
+        }
+    }
+
+    /**
+     * Spring MVC already registers its own converter for each dataformat on the classpath, with a mapper of its own,
+     * and the first converter of the list wins: it's replaced in place. Otherwise the converter is appended after
+     * JSON, so clients that don't ask for a binary format keep getting JSON.
+     */
+    private static void replaceOrAdd(List<HttpMessageConverter<?>> converters, Class<?> type, HttpMessageConverter<?> converter) {
+        var replaced = false;
+        for (int i = 0; i < converters.size(); i++) {
+            if (type.isInstance(converters.get(i))) {
+                converters.set(i, converter);
+                replaced = true;
+            }
+        }
+        if (!replaced) {
+            converters.add(converter);
+        }
+    }
+
+    /**
+     * Binary mapper with the same setup (modules, features, mix-ins, serialization and deserialization config) of the
+     * application's JSON mapper.
+     */
+    private ObjectMapper copyFor(JsonFactory factory) {
+        var binaryMapper = new ObjectMapper(factory, (DefaultSerializerProvider) mapper.getSerializerProvider(),
+                (DefaultDeserializationContext) mapper.getDeserializationContext());
+        binaryMapper.setTypeFactory(mapper.getTypeFactory());
+        binaryMapper.setSerializerFactory(mapper.getSerializerFactory());
+        binaryMapper.setSubtypeResolver(mapper.getSubtypeResolver());
+        binaryMapper.setInjectableValues(mapper.getInjectableValues());
+        binaryMapper.setConfig(mapper.getSerializationConfig());
+        binaryMapper.setConfig(mapper.getDeserializationConfig());
+        return binaryMapper;
+    }
+
+    //The dataformats are optional: their classes are only referenced here, loaded after the ClassUtils check
+    private static final class SmileConverter {
+        static final Class<?> TYPE = MappingJackson2SmileHttpMessageConverter.class;
+
+        static HttpMessageConverter<?> create(CRUDZillaWebConfig config) {
+            return new MappingJackson2SmileHttpMessageConverter(config.copyFor(new SmileFactory()));
+        }
+    }
+
+    private static final class CborConverter {
+        static final Class<?> TYPE = MappingJackson2CborHttpMessageConverter.class;
+
+        static HttpMessageConverter<?> create(CRUDZillaWebConfig config) {
+            return new MappingJackson2CborHttpMessageConverter(config.copyFor(new CBORFactory()));
+        }
+    }
+}
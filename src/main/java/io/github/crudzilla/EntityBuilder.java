@@ -17,7 +17,11 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service(value = "CRUDZillaDefaultEntityBuilder")
 public class EntityBuilder<F extends CRUDZillaForm<E,K>, E extends CRUDZillaEntity<K>, K> {
@@ -27,6 +31,7 @@ public class EntityBuilder<F extends CRUDZillaForm<E,K>, E extends CRUDZillaEnti
     private final ModelMapper modelMapper;
     private final EntityReflections entityReflections;
     private final CRUDZilla crudZilla;
+    private final Map<Class<?>, Set<String>> formAssociations = new ConcurrentHashMap<>();
 
     @Autowired
     public EntityBuilder(ModelMapper modelMapper, EntityReflections entityReflections, CRUDZilla crudZilla) {
@@ -70,6 +75,50 @@ public class EntityBuilder<F extends CRUDZillaForm<E,K>, E extends CRUDZillaEnti
         return buildNew(form, entidade);
     }
 
+    /**
+     * Collection associations of the entity that the form carries, following the same naming rules used to build
+     * the entity: <code>{name}Forms</code> for OneToMany, <code>ids{Name}</code> for ManyToMany and the same name
+     * for ElementCollection. These are replaced by {@link #buildExisting}, so they are the only ones worth loading
+     * before it; ManyToOne associations are just set, without loading the current value.
+     */
+    public Set<String> getFormAssociations(Class<?> formClass, Class<?> entidadeClass) {
+        var associations = formAssociations.get(formClass);
+        if (associations == null) {
+            associations = findFormAssociations(formClass, entidadeClass);
+            formAssociations.putIfAbsent(formClass, associations);
+        }
+        return associations;
+    }
+
+    private static Set<String> findFormAssociations(Class<?> formClass, Class<?> entidadeClass) {
+        var associations = new LinkedHashSet<String>();
+        for (Field entidadeField : entidadeClass.getDeclaredFields()) {
+            String formFieldName;
+            if (entidadeField.isAnnotationPresent(ManyToMany.class)) {
+                formFieldName = "ids" + StringUtils.capitalize(entidadeField.getName());
+            } else if (entidadeField.isAnnotationPresent(OneToMany.class)) {
+                formFieldName = entidadeField.getName() + "Forms";
+            } else if (entidadeField.isAnnotationPresent(ElementCollection.class)) {
+                formFieldName = entidadeField.getName();
+            } else {
+                continue;
+            }
+            if (hasDeclaredField(formClass, formFieldName)) {
+                associations.add(entidadeField.getName());
+            }
+        }
+        return Set.copyOf(associations);
+    }
+
+    private static boolean hasDeclaredField(Class<?> clazz, String fieldName) {
+        try {
+            clazz.getDeclaredField(fieldName);
+            return true;
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
     protected void processFieldManyToOne(F form, E entidade, Field entidadeField) throws NoSuchFieldException, NoSuchMethodException, InvocationTargetException, IllegalAccessException {
         var formField = form.getClass().getDeclaredField(entidadeField.getName());
         var manyClass = entidadeField.getType();
@@ -12,6 +12,8 @@ import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 @Service
@@ -21,6 +23,10 @@ public class EntityReflections {
     private final Map<String, Class<? extends CRUDZillaEntity<?>>> entidadesMap;
     private final String domainPackageName;
     private final String appPackageName;
+    private final CRUDZillaGlobalConfig globalConfig;
+    //Class.forName and failed lookups take the class loader lock, which pins virtual threads, so every lookup is cached
+    private final Map<String, Object> beansCache = new ConcurrentHashMap<>();
+    private final Map<String, Optional<Class<?>>> classesCache = new ConcurrentHashMap<>();
 
     @Autowired
     @SuppressWarnings({"SuspiciousMethodCalls"})
@@ -28,7 +34,7 @@ public class EntityReflections {
         this.applicationContext = applicationContext;
         var beansWithAnnotation = applicationContext.getBeansWithAnnotation(CRUDZillaGlobalConfig.class);
         var firstBeanWithAnnotationFound = beansWithAnnotation.get(beansWithAnnotation.keySet().toArray()[0]);
-        var globalConfig = firstBeanWithAnnotationFound.getClass().getAnnotation(CRUDZillaGlobalConfig.class);
+        this.globalConfig = firstBeanWithAnnotationFound.getClass().getAnnotation(CRUDZillaGlobalConfig.class);
         var reflections = new Reflections(globalConfig.scanPackage());
         this.domainPackageName = globalConfig.domainPackagePrefix();
         this.appPackageName = globalConfig.appPackagePrefix();
@@ -65,24 +71,47 @@ public class EntityReflections {
         return (EntityBuilder) getBean(entidadeClass.getName().replace(domainPackageName, appPackageName), "EntityBuilder", "CRUDZillaDefaultEntityBuilder");
     }
 
+    public CRUDZillaGlobalConfig getGlobalConfig() {
+        return globalConfig;
+    }
+
+    //get/put instead of computeIfAbsent: the lookups must not run while holding the map's bin lock
     private Object getBean(String className, String suffix, String orDefault) {
-        try {
-            Class<?> beanClass = Class.forName(className + suffix);
-            return applicationContext.getBean(beanClass);
-        } catch (ClassNotFoundException e) {
-            return applicationContext.getBean(orDefault);
+        var bean = beansCache.get(className + suffix);
+        if (bean == null) {
+            var beanClass = findClass(className + suffix);
+            bean = beanClass.isPresent() ? applicationContext.getBean(beanClass.get()) : applicationContext.getBean(orDefault);
+            beansCache.putIfAbsent(className + suffix, bean);
+        }
+        return bean;
+    }
+
+    private Optional<Class<?>> findClass(String className) {
+        var clazz = classesCache.get(className);
+        if (clazz == null) {
+            try {
+                clazz = Optional.of(Class.forName(className));
+            } catch (ClassNotFoundException e) {
+                clazz = Optional.empty();
+            }
+            classesCache.putIfAbsent(className, clazz);
         }
+        return clazz;
     }
 
     public boolean isGetAllDisabled(Class<? extends CRUDZillaEntity> clazzName) {
         if (clazzName.isEnum()) {
             return false;
         }
+        return getConfig(clazzName).disableGetAll();
+    }
+
+    public CRUDZillaConfig getConfig(Class<? extends CRUDZillaEntity> clazzName) {
         var annotation = clazzName.getAnnotation(CRUDZillaConfig.class);
         if (annotation == null) {
             throw new NotImplementedException("CRUDZilla não habilitado para essa entidade!");
         }
-        return annotation.disableGetAll();
+        return annotation;
     }
 
     @SuppressWarnings("unchecked")
@@ -92,13 +121,10 @@ public class EntityReflections {
 
     @SuppressWarnings("unchecked")
     public Class<? extends CRUDZillaFilter> getFilterClassFromKey(String key) {
-        try {
-            return (Class<? extends CRUDZillaFilter>) Class.forName(getEntityClass(key).getName()
-                    .replace(domainPackageName, appPackageName)
-                    .concat("Filtro"));
-        } catch (ClassNotFoundException e) {
-            throw new CRUDZillaFilterNotFound();
-        }
+        return (Class<? extends CRUDZillaFilter>) findClass(getEntityClass(key).getName()
+                .replace(domainPackageName, appPackageName)
+                .concat("Filtro"))
+                .orElseThrow(CRUDZillaFilterNotFound::new);
     }
 
     Class<? extends CRUDZillaEntity<?>> getEntityClass(String key) {
@@ -110,12 +136,9 @@ public class EntityReflections {
     }
 
     public Class<? extends CRUDZillaForm> getFormClass(Class<? extends CRUDZillaEntity<?>> entidadeClass) {
-        try {
-            return (Class<? extends CRUDZillaForm>) Class.forName(entidadeClass.getName()
-                    .replace(domainPackageName, appPackageName)
-                    .concat("Form"));
-        } catch (ClassNotFoundException e) {
-            throw new CRUDZillaFormNotFound();
-        }
+        return (Class<? extends CRUDZillaForm>) findClass(entidadeClass.getName()
+                .replace(domainPackageName, appPackageName)
+                .concat("Form"))
+                .orElseThrow(CRUDZillaFormNotFound::new);
     }
 }
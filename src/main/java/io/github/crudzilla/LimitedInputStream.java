@@ -0,0 +1,56 @@
+package io.github.crudzilla;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream that throws {@link CRUDZillaPayloadTooLarge} as soon as more than maxSize bytes are read.
+ */
+class LimitedInputStream extends FilterInputStream {
+
+    private final long maxSize;
+    private long count;
+
+    LimitedInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        var read = super.read();
+        if (read >= 0) {
+            count(1);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        var read = super.read(b, off, len);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        var skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long read) {
+        count += read;
+        if (count > maxSize) {
+            throw new CRUDZillaPayloadTooLarge();
+        }
+    }
+}
@@ -1,27 +1,97 @@
 package io.github.crudzilla.persistency;
 
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.EntityPathBase;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import com.querydsl.jpa.sql.JPASQLQuery;
 import com.querydsl.sql.SQLTemplates;
+import io.github.crudzilla.CRUDZillaConfig;
+import io.github.crudzilla.CRUDZillaSearchField;
+import io.github.crudzilla.querybuilder.InClauses;
 import org.apache.commons.lang3.NotImplementedException;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.Assigned;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import javax.validation.groups.Default;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public abstract class AbstractRepositoryJPA<E extends CRUDZillaEntity<K>, K> {
 
+    private static final Class<?>[] CREATE_GROUPS = {Default.class, ValidationGroups.Create.class};
+    private static final Class<?>[] UPDATE_GROUPS = {Default.class, ValidationGroups.Update.class};
+    private static final Class<?>[] UPSERT_GROUPS = {Default.class, ValidationGroups.Create.class, ValidationGroups.Update.class};
+    private static final Object VALIDATED_ENTITIES = new Object();
+    private static final Map<Class<?>, List<Field>> SNAPSHOT_FIELDS = new ConcurrentHashMap<>();
+    private static final int UPSERT_BATCH_SIZE = 500;
+
+    /**
+     * Como {@link #put(CRUDZillaEntity, PutMode)} grava a entidade.
+     */
+    public enum PutMode {
+        /** Insere as entidades sem id e atualiza as demais, com merge se não forem gerenciadas. */
+        AUTO,
+        /**
+         * Sempre insere, sem o SELECT que o merge faria. Para cargas de entidades novas com id atribuído pela
+         * aplicação.
+         */
+        INSERT,
+        /**
+         * Atualiza uma entidade destacada (detached) sem carregá-la antes, reassociando-a à sessão. Todas as colunas
+         * são atualizadas, e não pode haver outra instância da mesma entidade na sessão.
+         */
+        DETACHED_UPDATE
+    }
+
     @Autowired
     private Validator validator;
+    private volatile Map<String, Boolean> searchFields;
+    private volatile Boolean mergeCascades;
     @Autowired
     private SQLTemplates sqlTemplate;
 
@@ -63,6 +133,183 @@ public abstract class AbstractRepositoryJPA<E extends CRUDZillaEntity<K>, K> {
         return entity;
     }
 
+    /**
+     * Obtém uma entidade para ser alterada, inicializando apenas as associações passadas (em vez de todo o grafo,
+     * como {@link #getEagerLoaded(Object)}). Cada associação é carregada com uma consulta própria, o que evita o
+     * produto cartesiano de buscar várias coleções num único join.
+     *
+     * @param id ID da entidade a ser buscada.
+     * @param associations Nomes dos atributos das associações que serão inicializadas.
+     * @return A entidade persistente com o id passado.
+     * @throws EntityNotFoundException Caso nenhuma entidade com o
+     *                                        id passado seja encontrada.
+     * @throws IllegalArgumentException Caso a entidade não tenha algum dos atributos passados.
+     */
+    @Transactional
+    public E getForUpdate(K id, Collection<String> associations) {
+        E entity = get(id);
+        var entityType = getEntityType();
+        for (String association : associations) {
+            Attribute<? super E, ?> attribute;
+            try {
+                attribute = entityType.getAttribute(association);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("A entidade " + getConcreteEntityClass().getSimpleName()
+                        + " não tem a associação " + association, e);
+            }
+            Hibernate.initialize(getAttributeValue(entity, attribute));
+        }
+        return entity;
+    }
+
+    //o membro do atributo é o campo ou o getter, conforme o tipo de acesso da entidade
+    private static Object getAttributeValue(Object entity, Attribute<?, ?> attribute) {
+        var member = attribute.getJavaMember();
+        if (member instanceof Field) {
+            ReflectionUtils.makeAccessible((Field) member);
+            return ReflectionUtils.getField((Field) member, Hibernate.unproxy(entity));
+        }
+        ReflectionUtils.makeAccessible((Method) member);
+        return ReflectionUtils.invokeMethod((Method) member, entity);
+    }
+
+    /**
+     * Nome do atributo usado como versão da entidade, por exemplo para gerar ETags. Por padrão, é o atributo
+     * anotado com <code>@Version</code>. Override nesse método para usar outra coluna, como uma data de atualização.
+     *
+     * @return O nome do atributo, ou <code>null</code> caso a entidade não seja versionada.
+     */
+    protected String getVersionAttribute() {
+        return getEntityType().getSingularAttributes().stream()
+                .filter(SingularAttribute::isVersion)
+                .map(SingularAttribute::getName)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Obtém apenas a versão de uma entidade, sem carregá-la.
+     *
+     * @param id ID da entidade.
+     * @return A versão atual, ou <code>null</code> caso a entidade não seja versionada ou não exista.
+     */
+    public Object getVersion(K id) {
+        var versionAttribute = getVersionAttribute();
+        if (versionAttribute == null) {
+            return null;
+        }
+        var entity = new PathBuilder<>(getConcreteEntityClass(), "e");
+        return getJPAQuery()
+                .select(entity.get(versionAttribute))
+                .from(entity)
+                .where(entity.get(getIdAttribute()).eq(id))
+                .fetchOne();
+    }
+
+    /**
+     * Obtém uma versão que representa todas as entidades do tipo, sem carregá-las. Ela muda sempre que
+     * uma entidade é inserida, removida ou (se a versão for numérica) atualizada: além das versões, leva a quantidade,
+     * a soma e o maior dos ids, então remover uma entidade e inserir outra com a mesma versão também a altera.
+     *
+     * @return A versão atual, ou <code>null</code> caso a entidade não seja versionada ou o id não seja numérico.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Object getAllVersion() {
+        var versionAttribute = getVersionAttribute();
+        var idType = getEntityType().getIdType().getJavaType();
+        if (versionAttribute == null || !isNumeric(idType)) {
+            return null;
+        }
+        var entity = new PathBuilder<>(getConcreteEntityClass(), "e");
+        var versionType = getEntityType().getSingularAttribute(versionAttribute).getJavaType();
+        //Versões numéricas são incrementadas por linha, então só a soma muda em qualquer update
+        var aggregate = isNumeric(versionType)
+                ? Expressions.numberPath(Long.class, entity, versionAttribute).sum()
+                : Expressions.comparablePath((Class) versionType, entity, versionAttribute).max();
+        var count = entity.count();
+        var id = Expressions.numberPath(Long.class, entity, getIdAttribute());
+        var idSum = id.sum();
+        var idMax = id.max();
+        var result = getJPAQuery()
+                .select(aggregate, count, idSum, idMax)
+                .from(entity)
+                .fetchOne();
+        return result == null ? null
+                : result.get(aggregate) + "-" + result.get(count) + "-" + result.get(idSum) + "-" + result.get(idMax);
+    }
+
+    /**
+     * Nome do atributo booleano que indica se a entidade está ativa, usado por {@link #toggleActive(Object, String)}.
+     * Por padrão, é o atributo <code>active</code>, se existir. Override nesse método caso a coluna tenha outro nome.
+     *
+     * @return O nome do atributo, ou <code>null</code> caso a entidade não tenha um.
+     */
+    protected String getActiveAttribute() {
+        return getEntityType().getSingularAttributes().stream()
+                .filter(attribute -> attribute.getName().equals("active"))
+                .filter(attribute -> attribute.getJavaType() == boolean.class || attribute.getJavaType() == Boolean.class)
+                .map(SingularAttribute::getName)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Ativa ou inativa uma entidade. Quando a entidade tem um atributo ativo (ver {@link #getActiveAttribute()}) e a
+     * versão, se houver, é numérica, isso é feito com um único <code>UPDATE</code>, sem carregar a entidade, que também
+     * incrementa a versão e remove a entidade do cache de segundo nível. Caso contrário, a entidade é carregada,
+     * alterada e validada com o grupo {@link ValidationGroups.Toggle}.
+     *
+     * @param id ID da entidade.
+     * @param version Versão esperada da entidade, ou <code>null</code> para não verificá-la.
+     * @throws EntityNotFoundException Caso nenhuma entidade com o id passado seja encontrada.
+     * @throws StaleEntityException Caso a entidade não esteja mais na versão passada.
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public void toggleActive(K id, String version) {
+        var activeAttribute = getActiveAttribute();
+        var versionAttribute = getVersionAttribute();
+        var versionType = versionAttribute == null ? null : getEntityType().getSingularAttribute(versionAttribute).getJavaType();
+        if (activeAttribute == null || (versionType != null && !isNumeric(versionType))) {
+            E entity = get(id);
+            if (version != null && !version.equals(String.valueOf(getVersion(id)))) {
+                throw new StaleEntityException(getConcreteEntityClass(), id, version);
+            }
+            entity.setActive(!entity.isActive());
+            validate(entity, ValidationGroups.Toggle.class);
+            return;
+        }
+
+        var entity = new PathBuilder<>(getConcreteEntityClass(), "e");
+        var active = entity.getBoolean(activeAttribute);
+        var update = getJPAQuery().update(entity)
+                .set(active, Expressions.booleanTemplate("case when {0} = true then false else true end", active))
+                .where(entity.get(getIdAttribute()).eq(id));
+        if (versionAttribute != null) {
+            var numberType = (Class<Long>) ClassUtils.resolvePrimitiveIfNecessary(versionType);
+            var versionPath = entity.getNumber(versionAttribute, numberType);
+            update.set(versionPath, versionPath.add(NumberUtils.parseNumber("1", numberType)));
+            if (version != null) {
+                try {
+                    update.where(versionPath.eq(NumberUtils.parseNumber(version, numberType)));
+                } catch (IllegalArgumentException e) {
+                    throw new StaleEntityException(getConcreteEntityClass(), id, version);
+                }
+            }
+        }
+        if (update.execute() == 0) {
+            if (version != null && getVersion(id) != null) {
+                throw new StaleEntityException(getConcreteEntityClass(), id, version);
+            }
+            throw new EntityNotFoundException(getConcreteEntityClass(), id);
+        }
+        getEntityManager().getEntityManagerFactory().getCache().evict(getConcreteEntityClass(), id);
+    }
+
+    private static boolean isNumeric(Class<?> type) {
+        return Number.class.isAssignableFrom(type) || type.isPrimitive();
+    }
+
     /**
      * Remove uma entidade a partir do ID
      *
@@ -106,7 +353,27 @@ public abstract class AbstractRepositoryJPA<E extends CRUDZillaEntity<K>, K> {
      * @return Uma lista contendo todas as entidades armazenadas do tipo.
      */
     public List<E> getAll() {
-        return new JPAQueryFactory(getEntityManager()).selectFrom(getQEntity()).fetch();
+        return cacheable(new JPAQueryFactory(getEntityManager()).selectFrom(getQEntity())).fetch();
+    }
+
+    /**
+     * Indica se a entidade está marcada com <code>@CRUDZillaConfig(cacheableReference = true)</code>, e portanto fica
+     * no cache de segundo nível.
+     */
+    protected boolean isCacheableReference() {
+        var config = getConcreteEntityClass().getAnnotation(CRUDZillaConfig.class);
+        return config != null && config.cacheableReference();
+    }
+
+    /**
+     * Guarda o resultado da consulta no cache de consultas do Hibernate quando a entidade é uma referência cacheável.
+     * Use nas consultas de listas pequenas e estáveis, como em {@link #getByIds(List)}.
+     */
+    protected <Q extends JPAQuery<?>> Q cacheable(Q query) {
+        if (isCacheableReference()) {
+            query.setHint(QueryHints.CACHEABLE, true);
+        }
+        return query;
     }
 
     /**
@@ -123,6 +390,11 @@ public abstract class AbstractRepositoryJPA<E extends CRUDZillaEntity<K>, K> {
     /**
      * Valida e, caso não existam violações, insere ou atualiza a entity passada
      * na camada de persistência.
+     * <p>
+     * Na inserção são validados os grupos <code>Default</code> e {@link ValidationGroups.Create}. Na atualização de uma
+     * entidade carregada nessa transação, os grupos <code>Default</code> e {@link ValidationGroups.Update}, mas apenas
+     * nas propriedades alteradas e nas coleções. Entidades já validadas nessa transação, com os mesmos grupos, não são
+     * validadas novamente.
      *
      * @param entity Entidade a ser validada e inserida/atualizada.
      * @return Entidade após o salvamento. Quando a operação é de atualização, a entity
@@ -130,14 +402,154 @@ public abstract class AbstractRepositoryJPA<E extends CRUDZillaEntity<K>, K> {
      * da mesma classe e ID.
      */
     public E put(E entity) {
-        validate(entity);
-        if (entity.getId() == null) {
+        return put(entity, PutMode.AUTO);
+    }
+
+    /**
+     * Igual a {@link #put(CRUDZillaEntity)}, escolhendo como a entidade é gravada.
+     *
+     * @param entity Entidade a ser validada e inserida/atualizada.
+     * @param mode Modo de gravação da entidade.
+     * @return Entidade após o salvamento.
+     */
+    public E put(E entity, PutMode mode) {
+        if (mode == PutMode.INSERT || (mode == PutMode.AUTO && entity.getId() == null)) {
+            if (!isValidatedInTransaction(entity, CREATE_GROUPS)) {
+                validate(entity, CREATE_GROUPS);
+            }
             getEntityManager().persist(entity);
             return entity;
         }
+        if (!isValidatedInTransaction(entity, UPDATE_GROUPS)) {
+            validateChanges(entity);
+        }
+        if (mode == PutMode.DETACHED_UPDATE) {
+            getEntityManager().unwrap(Session.class).update(entity);
+            return entity;
+        }
+        //A entidade carregada nessa transação já é gerenciada, então o merge só copiaria ela sobre ela mesma
+        if (getEntityManager().contains(entity) && !hasMergeCascades()) {
+            return entity;
+        }
         return getEntityManager().merge(entity);
     }
 
+    /**
+     * Se a entidade tem associações com cascade MERGE. Só o merge percorre essas associações, então sem ele os filhos
+     * novos ou detached dessas associações não seriam gravados.
+     */
+    private boolean hasMergeCascades() {
+        var current = mergeCascades;
+        if (current == null) {
+            var session = getEntityManager().unwrap(SessionImplementor.class);
+            if (session == null) {
+                return false;
+            }
+            var persister = session.getFactory().getMetamodel().entityPersister(getConcreteEntityClass());
+            current = Arrays.stream(persister.getPropertyCascadeStyles())
+                    .anyMatch(style -> style.doCascade(CascadingActions.MERGE));
+            mergeCascades = current;
+        }
+        return current;
+    }
+
+    /**
+     * Insere as entidades que não existem e altera as demais, sem consultar antes quais existem: cada entidade vira um
+     * comando de upsert do dialeto (ver {@link UpsertDialect}), enviados em lotes JDBC. Apenas para entidades simples,
+     * com o id atribuído pela aplicação e sem associações, coleções ou componentes.
+     * <p>
+     * As entidades são validadas com os grupos de inserção e de alteração, já que não se sabe qual das duas acontece, mas
+     * não passam pelo contexto de persistência: instâncias já carregadas na sessão não são atualizadas, e a entidade é
+     * removida do cache de segundo nível. Nas linhas que já existem, as colunas com <code>updatable = false</code> não
+     * são alteradas e a versão é incrementada pelo próprio comando.
+     *
+     * @param entities Entidades a serem inseridas/atualizadas.
+     * @return O número de entidades gravadas.
+     * @throws UnsupportedOperationException Caso o dialeto não implemente {@link UpsertDialect}, a entidade não seja
+     *                                       simples ou o id seja gerado.
+     */
+    @Transactional
+    public int upsert(Collection<E> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        var session = getEntityManager().unwrap(SessionImplementor.class);
+        var dialect = session.getJdbcServices().getDialect();
+        if (!(dialect instanceof UpsertDialect)) {
+            throw new UnsupportedOperationException("O dialeto " + dialect.getClass().getName() + " não suporta upsert");
+        }
+        var persister = (AbstractEntityPersister) session.getFactory().getMetamodel().entityPersister(getConcreteEntityClass());
+        //com o id gerado (identity ou sequence), o upsert gravaria o id passado em vez de um gerado
+        if (!(persister.getIdentifierGenerator() instanceof Assigned)) {
+            throw new UnsupportedOperationException("Upsert não suportado na entidade "
+                    + getConcreteEntityClass().getSimpleName() + " porque o id não é atribuído pela aplicação");
+        }
+        var propertyTypes = persister.getPropertyTypes();
+        var versionProperty = persister.isVersioned() ? persister.getVersionProperty() : -1;
+        var properties = new ArrayList<Integer>();
+        var columns = new ArrayList<String>();
+        var updateColumns = new ArrayList<String>();
+        String versionColumn = null;
+        for (int i = 0; i < propertyTypes.length; i++) {
+            if (propertyTypes[i].isAssociationType() || propertyTypes[i].isComponentType()
+                    || persister.getPropertyColumnNames(i).length != 1) {
+                throw new UnsupportedOperationException("Upsert não suportado na entidade "
+                        + getConcreteEntityClass().getSimpleName() + " por causa do atributo " + persister.getPropertyNames()[i]);
+            }
+            if (persister.getPropertyInsertability()[i]) {
+                var column = persister.getPropertyColumnNames(i)[0];
+                properties.add(i);
+                columns.add(column);
+                if (i == versionProperty) {
+                    versionColumn = column;
+                } else if (persister.getPropertyUpdateability()[i]) {
+                    updateColumns.add(column);
+                }
+            }
+        }
+        for (E entity : entities) {
+            if (entity.getId() == null) {
+                throw new IllegalArgumentException("O upsert precisa do id de todas as entidades");
+            }
+            validate(entity, UPSERT_GROUPS);
+        }
+
+        var keyColumns = List.of(persister.getIdentifierColumnNames());
+        var sql = ((UpsertDialect) dialect).getUpsertString(persister.getTableName(), keyColumns, columns, updateColumns, versionColumn);
+        getEntityManager().flush();
+        session.doWork(connection -> {
+            try (var statement = connection.prepareStatement(sql)) {
+                var pending = 0;
+                for (E entity : entities) {
+                    persister.getIdentifierType().nullSafeSet(statement, entity.getId(), 1, session);
+                    var values = persister.getPropertyValues(entity);
+                    var index = keyColumns.size() + 1;
+                    for (int property : properties) {
+                        var value = values[property];
+                        if (property == versionProperty && value == null) {
+                            value = persister.getVersionType().seed(session);
+                        }
+                        propertyTypes[property].nullSafeSet(statement, value, index++, session);
+                    }
+                    statement.addBatch();
+                    if (++pending == UPSERT_BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+            }
+        });
+        getEntityManager().getEntityManagerFactory().getCache().evict(getConcreteEntityClass());
+        if (isCacheableReference()) {
+            //o comando não passa pelo Hibernate, então as consultas cacheadas não são invalidadas sozinhas
+            getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+        }
+        return entities.size();
+    }
+
     /**
      * Valida a entity passada. Caso encontre violações de restrições, uma
      * {@link InvalidEntityException} será lançada.
@@ -147,10 +559,189 @@ public abstract class AbstractRepositoryJPA<E extends CRUDZillaEntity<K>, K> {
      *                                   alguma restrição (constraint).
      */
     public void validate(E entity) {
-        Set<ConstraintViolation<E>> violations = validator.validate(entity);
+        validate(entity, Default.class);
+    }
+
+    /**
+     * Valida os grupos passados da entity. Caso encontre violações de restrições, uma
+     * {@link InvalidEntityException} será lançada.
+     *
+     * @param entity Entidade a ser validada.
+     * @param groups Grupos de validação, como os de {@link ValidationGroups}.
+     * @throws InvalidEntityException Caso a entity passada viole
+     *                                   alguma restrição (constraint).
+     */
+    public void validate(E entity, Class<?>... groups) {
+        Set<ConstraintViolation<E>> violations = validator.validate(entity, groups);
         if (!violations.isEmpty()) {
             throw new InvalidEntityException(violations);
         }
+        markValidatedInTransaction(entity, groups);
+    }
+
+    private void validateChanges(E entity) {
+        var changedProperties = getChangedProperties(entity);
+        if (changedProperties == null || needsFullValidation(entity, changedProperties)) {
+            validate(entity, UPDATE_GROUPS);
+            return;
+        }
+        Set<ConstraintViolation<E>> violations = new HashSet<>();
+        for (String property : changedProperties) {
+            violations.addAll(validator.validateProperty(entity, property, UPDATE_GROUPS));
+        }
+        if (!violations.isEmpty()) {
+            throw new InvalidEntityException(violations);
+        }
+        markValidatedInTransaction(entity, UPDATE_GROUPS);
+    }
+
+    /**
+     * Se as alterações só podem ser validadas com a entidade toda: as restrições de classe olham várias propriedades,
+     * e o <code>validateProperty</code> não desce nas propriedades com <code>@Valid</code>, como as coleções de filhos.
+     */
+    private boolean needsFullValidation(E entity, Set<String> changedProperties) {
+        var beanDescriptor = validator.getConstraintsForClass(entity.getClass());
+        if (!beanDescriptor.getConstraintDescriptors().isEmpty()) {
+            return true;
+        }
+        for (String property : changedProperties) {
+            var propertyDescriptor = beanDescriptor.getConstraintsForProperty(property);
+            if (propertyDescriptor != null && propertyDescriptor.isCascaded()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Propriedades alteradas desde que a entidade foi carregada, mais as coleções (cujas alterações o Hibernate não
+     * compara com o estado carregado).
+     *
+     * @return As propriedades, ou <code>null</code> se a entidade não foi carregada nessa sessão.
+     */
+    private Set<String> getChangedProperties(E entity) {
+        var session = getEntityManager().unwrap(SessionImplementor.class);
+        var entry = session == null ? null : session.getPersistenceContextInternal().getEntry(entity);
+        if (entry == null || entry.getLoadedState() == null) {
+            return null;
+        }
+        var persister = entry.getPersister();
+        var propertyNames = persister.getPropertyNames();
+        var changedProperties = new HashSet<String>();
+        var dirty = persister.findDirty(persister.getPropertyValues(entity), entry.getLoadedState(), entity, session);
+        if (dirty != null) {
+            for (int index : dirty) {
+                changedProperties.add(propertyNames[index]);
+            }
+        }
+        var propertyTypes = persister.getPropertyTypes();
+        for (int i = 0; i < propertyTypes.length; i++) {
+            if (propertyTypes[i].isCollectionType()) {
+                changedProperties.add(propertyNames[i]);
+            }
+        }
+        return changedProperties;
+    }
+
+    /**
+     * Se a entidade já foi validada com os grupos na transação corrente e não mudou desde então.
+     */
+    private static boolean isValidatedInTransaction(Object entity, Class<?>[] groups) {
+        var validatedEntities = getValidatedEntities();
+        var validation = validatedEntities == null ? null : validatedEntities.get(entity);
+        return validation != null
+                && validation.groups.containsAll(Arrays.asList(groups))
+                && Arrays.deepEquals(validation.state, snapshot(entity));
+    }
+
+    private static void markValidatedInTransaction(Object entity, Class<?>[] groups) {
+        var validatedEntities = getValidatedEntities();
+        if (validatedEntities == null) {
+            return;
+        }
+        var state = snapshot(entity);
+        var validation = validatedEntities.get(entity);
+        if (validation == null || !Arrays.deepEquals(validation.state, state)) {
+            validation = new Validation(state);
+            validatedEntities.put(entity, validation);
+        }
+        validation.groups.addAll(Arrays.asList(groups));
+    }
+
+    /**
+     * Valores dos campos da entidade quando foi validada, com cópias das coleções e dos arrays, para que uma alteração
+     * feita depois da validação seja validada de novo. Coleções lazy ainda não carregadas não são copiadas, para não
+     * carregá-las.
+     */
+    private static Object[] snapshot(Object entity) {
+        var fields = SNAPSHOT_FIELDS.computeIfAbsent(entity.getClass(), AbstractRepositoryJPA::findSnapshotFields);
+        var state = new Object[fields.size()];
+        for (int i = 0; i < state.length; i++) {
+            var value = ReflectionUtils.getField(fields.get(i), entity);
+            if (value instanceof Collection && Hibernate.isInitialized(value)) {
+                value = new ArrayList<>((Collection<?>) value);
+            } else if (value instanceof Map && Hibernate.isInitialized(value)) {
+                value = new HashMap<>((Map<?, ?>) value);
+            } else if (value != null && value.getClass().isArray()) {
+                var length = Array.getLength(value);
+                var copy = Array.newInstance(value.getClass().getComponentType(), length);
+                System.arraycopy(value, 0, copy, 0, length);
+                value = copy;
+            }
+            state[i] = value;
+        }
+        return state;
+    }
+
+    private static List<Field> findSnapshotFields(Class<?> entityClass) {
+        var fields = new ArrayList<Field>();
+        ReflectionUtils.doWithFields(entityClass, field -> {
+            ReflectionUtils.makeAccessible(field);
+            fields.add(field);
+        }, field -> !Modifier.isStatic(field.getModifiers()));
+        return List.copyOf(fields);
+    }
+
+    private static final class Validation {
+        private final Object[] state;
+        private final Set<Class<?>> groups = new HashSet<>();
+
+        private Validation(Object[] state) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * Entidades validadas na transação corrente, ou <code>null</code> fora de uma transação.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Validation> getValidatedEntities() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        var validatedEntities = (Map<Object, Validation>) TransactionSynchronizationManager.getResource(VALIDATED_ENTITIES);
+        if (validatedEntities == null) {
+            validatedEntities = new IdentityHashMap<>();
+            TransactionSynchronizationManager.bindResource(VALIDATED_ENTITIES, validatedEntities);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(VALIDATED_ENTITIES);
+                }
+            });
+        }
+        return validatedEntities;
+    }
+
+    /**
+     * Carrega os metadados de validação da entidade na inicialização, para que as primeiras requisições não paguem
+     * por isso.
+     */
+    @PostConstruct
+    void warmUpValidation() {
+        if (getClass().getGenericSuperclass() instanceof ParameterizedType) {
+            validator.getConstraintsForClass(getConcreteEntityClass());
+        }
     }
 
     /**
@@ -186,17 +777,142 @@ public abstract class AbstractRepositoryJPA<E extends CRUDZillaEntity<K>, K> {
         return (Class<E>) genericSuperclass.getActualTypeArguments()[0];
     }
 
+    protected EntityType<E> getEntityType() {
+        return getEntityManager().getMetamodel().entity(getConcreteEntityClass());
+    }
+
+    protected String getIdAttribute() {
+        var entityType = getEntityType();
+        return entityType.getId(entityType.getIdType().getJavaType()).getName();
+    }
+
     public abstract <K> K convertId(String idString);
 
-    public List<E> getByTerm(String q) {
-        throw new NotImplementedException();
+    /**
+     * Número máximo de entidades retornadas por {@link #getByTerm(String)} e {@link #getByTermActive(String)}.
+     */
+    protected int getTermSearchLimit() {
+        return 20;
     }
 
-    public List<E> getByIds(List<K> ids) {
-        throw new NotImplementedException();
+    /**
+     * Busca as entidades cujos atributos anotados com {@link CRUDZillaSearchField} contenham o termo. Primeiro são
+     * buscadas as que começam com o termo, que podem usar o índice da coluna; só se elas não chegarem ao limite
+     * ({@link #getTermSearchLimit()}) as que contêm o termo em outra posição completam o resultado.
+     *
+     * @param q Termo buscado.
+     * @return As entidades encontradas, ordenadas pelo primeiro atributo de busca.
+     */
+    public List<E> getByTerm(String q) {
+        return getByTerm(q, null);
     }
 
+    /**
+     * Igual a {@link #getByTerm(String)}, mas só com as entidades ativas (ver {@link #getActiveAttribute()}).
+     *
+     * @throws LogicalDeleteNotAvailableException Caso a entidade não tenha um atributo ativo.
+     */
     public List<E> getByTermActive(String q) {
-        throw new NotImplementedException();
+        var activeAttribute = getActiveAttribute();
+        if (activeAttribute == null) {
+            throw new LogicalDeleteNotAvailableException();
+        }
+        var entity = new PathBuilder<>(getConcreteEntityClass(), "e");
+        return getByTerm(q, entity.getBoolean(activeAttribute).isTrue());
+    }
+
+    private List<E> getByTerm(String q, Predicate filter) {
+        var searchFields = getSearchFields();
+        if (searchFields.isEmpty()) {
+            throw new NotImplementedException("Nenhum atributo de " + getConcreteEntityClass().getSimpleName()
+                    + " anotado com @CRUDZillaSearchField");
+        }
+        var term = q == null ? "" : q.trim();
+        var entity = new PathBuilder<>(getConcreteEntityClass(), "e");
+        var prefixes = new ArrayList<Predicate>();
+        var contains = new ArrayList<Predicate>();
+        for (Map.Entry<String, Boolean> searchField : searchFields.entrySet()) {
+            var path = entity.getString(searchField.getKey());
+            var value = searchField.getValue() ? normalize(term) : term;
+            prefixes.add(path.startsWith(value));
+            contains.add(path.contains(value));
+        }
+        var prefix = ExpressionUtils.anyOf(prefixes);
+        var orderBy = new OrderSpecifier<?>[]{
+                entity.getString(searchFields.keySet().iterator().next()).asc(),
+                entity.getComparable(getIdAttribute(), Comparable.class).asc()
+        };
+
+        var limit = getTermSearchLimit();
+        var result = new ArrayList<E>(getJPAQuery().selectFrom(entity)
+                .where(prefix, filter)
+                .orderBy(orderBy)
+                .limit(limit)
+                .fetch());
+        if (result.size() < limit) {
+            result.addAll(getJPAQuery().selectFrom(entity)
+                    .where(ExpressionUtils.anyOf(contains), prefix.not(), filter)
+                    .orderBy(orderBy)
+                    .limit(limit - result.size())
+                    .fetch());
+        }
+        return result;
+    }
+
+    /**
+     * Texto em minúsculas e sem acentos, como deve estar nas colunas de busca normalizadas.
+     */
+    protected static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Atributos anotados com {@link CRUDZillaSearchField}, e se cada um é normalizado.
+     */
+    private Map<String, Boolean> getSearchFields() {
+        var fields = searchFields;
+        if (fields == null) {
+            var found = new LinkedHashMap<String, Boolean>();
+            for (Class<?> clazz = getConcreteEntityClass(); clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    var searchField = field.getAnnotation(CRUDZillaSearchField.class);
+                    if (searchField != null) {
+                        found.put(field.getName(), searchField.normalized());
+                    }
+                }
+            }
+            fields = Collections.unmodifiableMap(found);
+            searchFields = fields;
+        }
+        return fields;
+    }
+
+    /**
+     * Busca as entidades com os ids passados, em consultas de até {@value InClauses#MAX_BUCKET} ids (o SQL Server aceita
+     * no máximo 2100 parâmetros por comando), completadas até uma potência de dois para reaproveitar os planos.
+     *
+     * @param ids IDs das entidades.
+     * @return As entidades encontradas, na ordem dos ids passados. Ids repetidos ou não encontrados são ignorados.
+     */
+    public List<E> getByIds(List<K> ids) {
+        var entity = new PathBuilder<>(getConcreteEntityClass(), "e");
+        var idPath = entity.get(getIdAttribute());
+        var uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        var found = new HashMap<Object, E>();
+        for (List<K> chunk : InClauses.partition(uniqueIds)) {
+            for (E e : cacheable(getJPAQuery().selectFrom(entity).where(idPath.in(chunk))).fetch()) {
+                found.put(e.getId(), e);
+            }
+        }
+        var result = new ArrayList<E>(found.size());
+        for (K id : uniqueIds) {
+            var e = found.get(id);
+            if (e != null) {
+                result.add(e);
+            }
+        }
+        return result;
     }
 }
@@ -0,0 +1,97 @@
+package io.github.crudzilla.persistency;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * DataSource que envia as transações somente leitura (<code>@Transactional(readOnly = true)</code>, como as consultas
+ * do CRUDZilla) para uma réplica de leitura, e todo o resto para o banco principal.
+ * <p>
+ * A conexão precisa ser obtida depois que a transação foi marcada como somente leitura, então o JpaTransactionManager
+ * deve usar esse DataSource através de um <code>LazyConnectionDataSourceProxy</code> do spring-jdbc:
+ * <pre>
+ * new LazyConnectionDataSourceProxy(new CRUDZillaRoutingDataSource(primary, replica))
+ * </pre>
+ * Override em {@link #isReadOnly()} para usar outro critério de roteamento.
+ */
+public class CRUDZillaRoutingDataSource implements DataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+
+    public CRUDZillaRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    /**
+     * Indica se a conexão atual pode ir para a réplica. Por padrão, quando a transação corrente é somente leitura.
+     */
+    protected boolean isReadOnly() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * @return O DataSource da réplica nas transações somente leitura, senão o principal.
+     */
+    protected DataSource determineTargetDataSource() {
+        return isReadOnly() ? replica : primary;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return determineTargetDataSource().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return determineTargetDataSource().getConnection(username, password);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return determineTargetDataSource().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || determineTargetDataSource().isWrapperFor(iface);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+        replica.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+        replica.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+}
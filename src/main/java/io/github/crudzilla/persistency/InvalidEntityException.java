@@ -14,13 +14,12 @@ public class InvalidEntityException extends RuntimeException {
 
 	private static final long serialVersionUID = 2L;
 	
-	private final List<String> mensagens;
+	private List<String> mensagens;
+	//As mensagens só são montadas se alguém pedir por elas
+	private final transient Set<? extends ConstraintViolation<?>> violations;
 
     public <E extends CRUDZillaEntity> InvalidEntityException(Set<ConstraintViolation<E>> violations) {
-        this.mensagens = new ArrayList<>();
-        for (ConstraintViolation<E> violation : violations) {
-            mensagens.add(violation.getMessage());
-        }
+        this.violations = violations;
     }
 
     /**
@@ -31,6 +30,7 @@ public class InvalidEntityException extends RuntimeException {
     public InvalidEntityException(List<String> mensagens, Throwable causa) {
         super(mensagens.get(0), causa);
     	this.mensagens = mensagens;
+    	this.violations = null;
     }
 
     /**
@@ -40,6 +40,7 @@ public class InvalidEntityException extends RuntimeException {
     public InvalidEntityException(List<String> mensagens) {
         super(mensagens.get(0));
     	this.mensagens = mensagens;
+    	this.violations = null;
     }
 
     /**
@@ -60,6 +61,13 @@ public class InvalidEntityException extends RuntimeException {
     }
     
     public List<String> getMensagens() {
+        if (mensagens == null) {
+            var violationMessages = new ArrayList<String>(violations.size());
+            for (ConstraintViolation<?> violation : violations) {
+                violationMessages.add(violation.getMessage());
+            }
+            mensagens = violationMessages;
+        }
         return mensagens;
     }
 
@@ -67,7 +75,7 @@ public class InvalidEntityException extends RuntimeException {
     public String getMessage() {
         StringBuilder message = new StringBuilder();
         message.append("\nErros encontrados na validação da entidade: ");
-        for(String s : mensagens) {
+        for(String s : getMensagens()) {
             message.append(s).append("  \n");
         }
         message.append("\n");
@@ -7,8 +7,12 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class JPAUtils {
 
@@ -26,32 +30,7 @@ public final class JPAUtils {
     private static void initializeObject(Object o, Set<Object> seenObjects, byte[] insidePackageName) {
         seenObjects.add(o);
 
-        Method[] methods = o.getClass().getMethods();
-        for (Method method : methods) {
-            String methodName = method.getName();
-
-            // check Getters exclusively
-            if (methodName.length() < 3 || !"get".equals(methodName.substring(0, 3))) {
-                continue;
-            }
-
-            // Getters without parameters
-            if (method.getParameterTypes().length > 0) {
-                continue;
-            }
-
-            int modifiers = method.getModifiers();
-
-            // Getters that are public
-            if (!Modifier.isPublic(modifiers)) {
-                continue;
-            }
-
-            // but not static
-            if (Modifier.isStatic(modifiers)) {
-                continue;
-            }
-
+        for (Method method : getGetters(o.getClass())) {
             try {
                 // Check result of the Getter
                 Object r = method.invoke(o);
@@ -89,6 +68,44 @@ public final class JPAUtils {
 
     private static final Set<Class<?>> IGNORED_TYPES = getIgnoredTypes();
 
+    private static final Map<Class<?>, List<Method>> GETTERS_CACHE = new ConcurrentHashMap<>();
+
+    private static List<Method> getGetters(Class<?> clazz) {
+        var getters = GETTERS_CACHE.get(clazz);
+        if (getters == null) {
+            getters = findGetters(clazz);
+            GETTERS_CACHE.putIfAbsent(clazz, getters);
+        }
+        return getters;
+    }
+
+    private static List<Method> findGetters(Class<?> clazz) {
+        List<Method> getters = new ArrayList<>();
+        for (Method method : clazz.getMethods()) {
+            String methodName = method.getName();
+
+            // check Getters exclusively
+            if (methodName.length() < 3 || !"get".equals(methodName.substring(0, 3))) {
+                continue;
+            }
+
+            // Getters without parameters
+            if (method.getParameterTypes().length > 0) {
+                continue;
+            }
+
+            int modifiers = method.getModifiers();
+
+            // Getters that are public, but not static
+            if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) {
+                continue;
+            }
+
+            getters.add(method);
+        }
+        return List.copyOf(getters);
+    }
+
     private static boolean isIgnoredType(Class<?> clazz) {
         return IGNORED_TYPES.contains(clazz);
     }
@@ -2,33 +2,163 @@ package io.github.crudzilla.persistency;
 
 import com.querydsl.sql.*;
 
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Templates do QueryDSL para cada banco. Cada templates é criado uma única vez e compartilhado (são imutáveis), e o
+ * banco pode ser identificado pelos metadados da conexão com {@link #build(DataSource)}, sem depender do profile.
+ * <p>
+ * Cada {@link Banco} informa os recursos de SQL que a camada de consulta pode usar para escolher a estratégia mais
+ * rápida; {@link #getBanco(SQLTemplates)} encontra o banco a partir dos templates injetados.
+ */
 public final class SQLTemplatesFactory {
 
     public enum Banco {
-        TERADATA,
-        SQLSERVER,
-        SQLSERVER_2005,
-        SQLSERVER_2008
+        TERADATA(false, true, true),
+        SQLSERVER(false, true, true),
+        SQLSERVER_2005(false, false, true),
+        SQLSERVER_2008(false, true, true),
+        H2(true, true, true),
+        POSTGRESQL(true, false, true),
+        /** MySQL 8 ou MariaDB 10.2 em diante, que têm funções de janela. */
+        MYSQL(true, false, true),
+        ORACLE(false, true, true);
+
+        private final boolean rowValueComparison;
+        private final boolean merge;
+        private final boolean windowCount;
+
+        Banco(boolean rowValueComparison, boolean merge, boolean windowCount) {
+            this.rowValueComparison = rowValueComparison;
+            this.merge = merge;
+            this.windowCount = windowCount;
+        }
+
+        /**
+         * Comparação de tuplas, como <code>(nome, id) &gt; (?, ?)</code>, que permite paginar por chave usando um
+         * único índice composto.
+         */
+        public boolean supportsRowValueComparison() {
+            return rowValueComparison;
+        }
 
+        /**
+         * Comando <code>MERGE</code>, para inserir ou atualizar em uma única instrução.
+         */
+        public boolean supportsMerge() {
+            return merge;
+        }
+
+        /**
+         * <code>count(*) over ()</code>, que traz o total de registros junto com a página, sem uma segunda consulta.
+         */
+        public boolean supportsWindowCount() {
+            return windowCount;
+        }
     }
 
+    private static final Map<Banco, SQLTemplates> TEMPLATES = new ConcurrentHashMap<>();
+
     private SQLTemplatesFactory() {/* Hide do construtor de casse utilitária */ }
 
+    /**
+     * Templates do banco informado, ou do H2 quando o profile <code>teste</code> está ativo.
+     */
     public static SQLTemplates build(Banco banco) {
         String springProfile = System.getProperty("spring.profiles.active");
-        if ("teste".equals(springProfile)) {
-            return H2Templates.builder().printSchema().build();
-        } else {
-            switch (banco) {
-                case TERADATA:
-                    return TeradataTemplates.builder().printSchema().build();
-                case SQLSERVER_2005:
-                    return SQLServer2005Templates.builder().printSchema().build();
-                case SQLSERVER_2008:
-                    return SQLServer2008Templates.builder().printSchema().build();
-                default:
-                    return SQLServer2012Templates.builder().printSchema().build();
+        return get("teste".equals(springProfile) ? Banco.H2 : banco);
+    }
+
+    /**
+     * Templates do banco do DataSource, identificado pelos metadados de uma conexão.
+     */
+    public static SQLTemplates build(DataSource dataSource) {
+        try (var connection = dataSource.getConnection()) {
+            return get(getBanco(connection.getMetaData()));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Não foi possível identificar o banco do DataSource", e);
+        }
+    }
+
+    public static Banco getBanco(DatabaseMetaData metaData) throws SQLException {
+        var produto = metaData.getDatabaseProductName().toLowerCase();
+        if (produto.contains("sql server")) {
+            var versao = metaData.getDatabaseMajorVersion();
+            if (versao >= 11) {
+                return Banco.SQLSERVER;
             }
+            return versao == 10 ? Banco.SQLSERVER_2008 : Banco.SQLSERVER_2005;
+        } else if (produto.contains("h2")) {
+            return Banco.H2;
+        } else if (produto.contains("postgresql")) {
+            return Banco.POSTGRESQL;
+        } else if (produto.contains("mysql") || produto.contains("mariadb")) {
+            return Banco.MYSQL;
+        } else if (produto.contains("oracle")) {
+            return Banco.ORACLE;
+        } else if (produto.contains("teradata")) {
+            return Banco.TERADATA;
+        }
+        throw new IllegalArgumentException("Banco não suportado: " + metaData.getDatabaseProductName());
+    }
+
+    /**
+     * Banco dos templates, ou vazio quando são templates que a fábrica não conhece.
+     */
+    public static Optional<Banco> getBanco(SQLTemplates templates) {
+        //as subclasses antes das superclasses
+        if (templates instanceof SQLServer2012Templates) {
+            return Optional.of(Banco.SQLSERVER);
+        } else if (templates instanceof SQLServer2008Templates) {
+            return Optional.of(Banco.SQLSERVER_2008);
+        } else if (templates instanceof SQLServer2005Templates) {
+            return Optional.of(Banco.SQLSERVER_2005);
+        } else if (templates instanceof H2Templates) {
+            return Optional.of(Banco.H2);
+        } else if (templates instanceof PostgreSQLTemplates) {
+            return Optional.of(Banco.POSTGRESQL);
+        } else if (templates instanceof MySQLTemplates) {
+            return Optional.of(Banco.MYSQL);
+        } else if (templates instanceof OracleTemplates) {
+            return Optional.of(Banco.ORACLE);
+        } else if (templates instanceof TeradataTemplates) {
+            return Optional.of(Banco.TERADATA);
+        }
+        return Optional.empty();
+    }
+
+    private static SQLTemplates get(Banco banco) {
+        var templates = TEMPLATES.get(banco);
+        if (templates == null) {
+            TEMPLATES.putIfAbsent(banco, create(banco));
+            templates = TEMPLATES.get(banco);
+        }
+        return templates;
+    }
+
+    private static SQLTemplates create(Banco banco) {
+        switch (banco) {
+            case TERADATA:
+                return TeradataTemplates.builder().printSchema().build();
+            case SQLSERVER_2005:
+                return SQLServer2005Templates.builder().printSchema().build();
+            case SQLSERVER_2008:
+                return SQLServer2008Templates.builder().printSchema().build();
+            case H2:
+                return H2Templates.builder().printSchema().build();
+            case POSTGRESQL:
+                return PostgreSQLTemplates.builder().printSchema().build();
+            case MYSQL:
+                return MySQLTemplates.builder().printSchema().build();
+            case ORACLE:
+                return OracleTemplates.builder().printSchema().build();
+            default:
+                return SQLServer2012Templates.builder().printSchema().build();
         }
     }
 }
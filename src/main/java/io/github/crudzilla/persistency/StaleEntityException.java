@@ -0,0 +1,14 @@
+package io.github.crudzilla.persistency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "A entidade foi alterada por outra operação.")
+public class StaleEntityException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public <E extends CRUDZillaEntity, K> StaleEntityException(Class<E> classe, K idEntidade, Object versao) {
+        super("A entidade '" + classe.getSimpleName() + "' com o id '" + idEntidade + "' não está mais na versão '" + versao + "'.");
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.crudzilla.persistency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dialeto do Hibernate que sabe gerar um comando de upsert (insere a linha ou, se a chave já existir, altera), usado
+ * por {@link AbstractRepositoryJPA#upsert(java.util.Collection)}.
+ */
+public interface UpsertDialect {
+
+    /**
+     * @param table Nome da tabela.
+     * @param keyColumns Colunas da chave, que são os primeiros parâmetros do comando.
+     * @param columns Demais colunas, na ordem dos parâmetros seguintes, inseridas e alteradas.
+     * @return O comando, com um parâmetro para cada coluna.
+     */
+    String getUpsertString(String table, List<String> keyColumns, List<String> columns);
+
+    /**
+     * Igual a {@link #getUpsertString(String, List, List)}, alterando só parte das colunas quando a chave já existe.
+     * Dialetos que só implementam o outro método suportam apenas entidades sem versão e com todas as colunas
+     * alteráveis.
+     *
+     * @param table Nome da tabela.
+     * @param keyColumns Colunas da chave, que são os primeiros parâmetros do comando.
+     * @param columns Demais colunas inseridas, na ordem dos parâmetros seguintes.
+     * @param updateColumns Colunas alteradas quando a chave já existe, dentre as de <code>columns</code>.
+     * @param versionColumn Coluna da versão, dentre as de <code>columns</code>, que é incrementada (e não alterada
+     *                      pelo parâmetro) quando a chave já existe; ou <code>null</code>.
+     * @return O comando, com um parâmetro para cada coluna da chave e de <code>columns</code>.
+     */
+    default String getUpsertString(String table, List<String> keyColumns, List<String> columns,
+                                   List<String> updateColumns, String versionColumn) {
+        if (versionColumn != null || !updateColumns.equals(columns)) {
+            throw new UnsupportedOperationException("O dialeto " + getClass().getName()
+                    + " não suporta upsert de entidades versionadas ou com colunas não alteráveis");
+        }
+        return getUpsertString(table, keyColumns, columns);
+    }
+
+    /**
+     * Comando <code>MERGE</code> do SQL padrão, com os parâmetros como origem.
+     *
+     * @param target Tabela, com as opções que o banco aceita antes do alias.
+     */
+    static String getMergeString(String target, List<String> keyColumns, List<String> columns,
+                                 List<String> updateColumns, String versionColumn) {
+        var allColumns = new ArrayList<String>(keyColumns);
+        allColumns.addAll(columns);
+        var on = new ArrayList<String>();
+        for (String column : keyColumns) {
+            on.add("t." + column + " = s." + column);
+        }
+        var set = new ArrayList<String>();
+        for (String column : updateColumns) {
+            set.add("t." + column + " = s." + column);
+        }
+        if (versionColumn != null) {
+            set.add("t." + versionColumn + " = t." + versionColumn + " + 1");
+        }
+        var sourceColumns = new ArrayList<String>();
+        for (String column : allColumns) {
+            sourceColumns.add("s." + column);
+        }
+        return "merge into " + target + " as t"
+                + " using (values (" + String.join(", ", Collections.nCopies(allColumns.size(), "?")) + ")) as s (" + String.join(", ", allColumns) + ")"
+                + " on " + String.join(" and ", on)
+                + (set.isEmpty() ? "" : " when matched then update set " + String.join(", ", set))
+                + " when not matched then insert (" + String.join(", ", allColumns) + ") values (" + String.join(", ", sourceColumns) + ")";
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.crudzilla.persistency;
+
+/**
+ * Grupos de validação de cada operação do {@link AbstractRepositoryJPA}. Restrições sem grupo (grupo
+ * <code>Default</code>) são validadas ao inserir e ao alterar; as marcadas com um desses grupos, apenas na operação
+ * correspondente.
+ * <p>
+ * O Hibernate também valida o grupo <code>Default</code> no flush, o que anula o {@link Toggle} e a validação só das
+ * propriedades alteradas. Para que só a validação do repositório valha, configure
+ * <code>javax.persistence.validation.mode=none</code> nas propriedades do EntityManagerFactory.
+ */
+public final class ValidationGroups {
+
+    /** Validado ao inserir uma entidade, junto com o grupo <code>Default</code>. */
+    public interface Create {
+    }
+
+    /** Validado ao alterar uma entidade, junto com o grupo <code>Default</code>. */
+    public interface Update {
+    }
+
+    /** Validado ao ativar ou inativar uma entidade. O repositório não valida o grupo <code>Default</code> nesse caso. */
+    public interface Toggle {
+    }
+
+    private ValidationGroups() {/* Hide do construtor de classe utilitária */ }
+}
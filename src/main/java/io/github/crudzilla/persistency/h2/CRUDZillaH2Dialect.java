@@ -1,14 +1,35 @@
 package io.github.crudzilla.persistency.h2;
 
+import io.github.crudzilla.persistency.UpsertDialect;
 import org.hibernate.dialect.H2Dialect;
 import org.hibernate.dialect.function.SQLFunctionTemplate;
 import org.hibernate.type.StandardBasicTypes;
 
-public class CRUDZillaH2Dialect extends H2Dialect {
+import java.util.Collections;
+import java.util.List;
+
+public class CRUDZillaH2Dialect extends H2Dialect implements UpsertDialect {
 
     public CRUDZillaH2Dialect() {
         super();
         registerFunction("always_null", new SQLFunctionTemplate(StandardBasicTypes.STRING, "cast(null as char)"));
         registerFunction("diffDataCorrenteDataInt", new SQLFunctionTemplate(StandardBasicTypes.INTEGER, "(CURRENT_DATE() - parsedatetime(?1, 'yyyyMMdd'))"));
     }
+
+    @Override
+    public String getUpsertString(String table, List<String> keyColumns, List<String> columns) {
+        var allColumns = String.join(", ", keyColumns) + (columns.isEmpty() ? "" : ", " + String.join(", ", columns));
+        var parameters = String.join(", ", Collections.nCopies(keyColumns.size() + columns.size(), "?"));
+        return "merge into " + table + " (" + allColumns + ") key (" + String.join(", ", keyColumns) + ") values (" + parameters + ")";
+    }
+
+    //o merge com key altera todas as colunas, então só serve quando todas são alteráveis
+    @Override
+    public String getUpsertString(String table, List<String> keyColumns, List<String> columns,
+                                  List<String> updateColumns, String versionColumn) {
+        if (versionColumn == null && updateColumns.equals(columns)) {
+            return getUpsertString(table, keyColumns, columns);
+        }
+        return UpsertDialect.getMergeString(table, keyColumns, columns, updateColumns, versionColumn);
+    }
 }
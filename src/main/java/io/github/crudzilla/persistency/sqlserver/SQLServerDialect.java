@@ -1,11 +1,14 @@
 package io.github.crudzilla.persistency.sqlserver;
 
+import io.github.crudzilla.persistency.UpsertDialect;
 import org.hibernate.dialect.SQLServer2012Dialect;
 import org.hibernate.dialect.function.SQLFunctionTemplate;
 import org.hibernate.dialect.pagination.LimitHandler;
 import org.hibernate.type.StandardBasicTypes;
 
-public class SQLServerDialect extends SQLServer2012Dialect {
+import java.util.List;
+
+public class SQLServerDialect extends SQLServer2012Dialect implements UpsertDialect {
 
 	@Override
 	public LimitHandler getLimitHandler() { return new SQLServerLimitHandler(); }
@@ -14,4 +17,16 @@ public class SQLServerDialect extends SQLServer2012Dialect {
 		super();
 		this.registerFunction("dayofweek", new SQLFunctionTemplate(StandardBasicTypes.INTEGER, "datepart(weekday, ?1)"));
 	}
-}
\ No newline at end of file
+
+	@Override
+	public String getUpsertString(String table, List<String> keyColumns, List<String> columns) {
+		return getUpsertString(table, keyColumns, columns, columns, null);
+	}
+
+	//holdlock: without it, two merges of the same new key can both try to insert it
+	@Override
+	public String getUpsertString(String table, List<String> keyColumns, List<String> columns,
+								  List<String> updateColumns, String versionColumn) {
+		return UpsertDialect.getMergeString(table + " with (holdlock)", keyColumns, columns, updateColumns, versionColumn) + ";";
+	}
+}
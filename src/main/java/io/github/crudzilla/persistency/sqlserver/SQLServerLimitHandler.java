@@ -8,8 +8,22 @@ import org.hibernate.engine.spi.RowSelection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
+/**
+ * Paginação do SQL Server. A primeira página usa <code>select top (?)</code>, que não precisa de order by; as demais
+ * usam <code>offset ? rows fetch next ? rows only</code>, antes da cláusula <code>option (...)</code> quando houver.
+ * O limite é sempre um parâmetro, então todas as páginas de uma consulta reaproveitam o mesmo plano.
+ * <p>
+ * O SQL é lido por um tokenizer que ignora strings, identificadores entre colchetes ou aspas, comentários e
+ * subconsultas, então só o order by e o option da consulta principal são considerados, em qualquer caixa e com
+ * quebras de linha.
+ * <p>
+ * Guarda estado entre {@link #processSql(String, RowSelection)} e o bind dos parâmetros: o dialeto cria uma instância
+ * por consulta.
+ */
 public class SQLServerLimitHandler extends AbstractLimitHandler implements LimitHandler {
 
+	private boolean topAdded;
+
 	@Override
 	public boolean supportsLimit() { return true; }
 
@@ -24,37 +38,136 @@ public class SQLServerLimitHandler extends AbstractLimitHandler implements Limit
 
 	@Override
 	public String processSql(String sql, RowSelection selection) {
-		StringBuilder sb = new StringBuilder(sql);
-
-		if (LimitHelper.hasMaxRows(selection)) {
-			if (!sql.contains(" order by ")) {
-				sb.append(" order by 1 asc ");
-			}
+		topAdded = false;
+		if (!LimitHelper.hasMaxRows(selection)) {
+			return sql;
+		}
 
-			sb.append(" offset ? rows fetch next ? rows only ");
+		var clauses = Clauses.parse(sql);
+		if (!LimitHelper.hasFirstRow(selection) && clauses.selectEnd > 0 && !clauses.hasTop && !clauses.hasSetOperator) {
+			topAdded = true;
+			return sql.substring(0, clauses.selectEnd) + " top (?)" + sql.substring(clauses.selectEnd);
 		}
 
-		return sb.toString();
+		//order by (select null): o offset exige um order by, mas esse não força uma ordenação
+		var paging = (clauses.hasOrderBy ? "" : " order by (select null)") + " offset ? rows fetch next ? rows only";
+		var end = clauses.end;
+		while (end > 0 && Character.isWhitespace(sql.charAt(end - 1))) {
+			end--;
+		}
+		return sql.substring(0, end) + paging + (end < sql.length() ? " " + sql.substring(end).trim() : "");
 	}
 
 	@Override
 	public int bindLimitParametersAtStartOfQuery(RowSelection selection, PreparedStatement statement, int index) throws SQLException {
+		if (topAdded) {
+			statement.setInt(index, selection.getMaxRows());
+			return 1;
+		}
 		return 0;
 	}
 
 	@Override
 	public int bindLimitParametersAtEndOfQuery(RowSelection selection, PreparedStatement statement, int index) throws SQLException {
-        if (LimitHelper.hasMaxRows(selection)) {
+		if (LimitHelper.hasMaxRows(selection) && !topAdded) {
+			statement.setInt(index, LimitHelper.getFirstRow(selection));
+			statement.setInt(index + 1, selection.getMaxRows());
+			return 2;
+		}
 
-            if (selection.getFirstRow() == null) {
-                selection.setFirstRow(0);
-            }
+		return 0;
+	}
 
-            statement.setInt(index, selection.getFirstRow());
-            statement.setInt(index + 1, selection.getMaxRows());
-            return 2;
-        }
+	/**
+	 * Cláusulas da consulta principal que a paginação precisa conhecer.
+	 */
+	static final class Clauses {
+		/** Posição logo depois de <code>select</code> (e de <code>distinct</code> ou <code>all</code>), ou -1 quando a consulta não começa por select. */
+		int selectEnd = -1;
+		boolean hasTop;
+		boolean hasOrderBy;
+		/** union, except ou intersect: o top valeria só para a primeira consulta. */
+		boolean hasSetOperator;
+		/** Posição do <code>option</code> ou do <code>;</code> final, onde o offset deve entrar. */
+		int end;
+
+		static Clauses parse(String sql) {
+			var clauses = new Clauses();
+			clauses.end = sql.length();
+			var depth = 0;
+			var words = 0;
+			String previous = null;
+			var i = 0;
+			while (i < sql.length()) {
+				var c = sql.charAt(i);
+				if (c == '\'' || c == '"' || c == '[') {
+					i = skipQuoted(sql, i, c == '[' ? ']' : c);
+				} else if (sql.startsWith("--", i)) {
+					i = skipUntil(sql, i, "\n");
+				} else if (sql.startsWith("/*", i)) {
+					i = skipUntil(sql, i, "*/");
+				} else if (c == '(') {
+					depth++;
+					i++;
+				} else if (c == ')') {
+					depth--;
+					i++;
+				} else if (c == ';' && depth == 0) {
+					clauses.end = Math.min(clauses.end, i);
+					break;
+				} else if (isWordChar(c)) {
+					var start = i;
+					while (i < sql.length() && isWordChar(sql.charAt(i))) {
+						i++;
+					}
+					if (depth == 0) {
+						var word = sql.substring(start, i).toLowerCase();
+						words++;
+						if (words == 1 && word.equals("select")
+								|| words == 2 && "select".equals(previous) && (word.equals("distinct") || word.equals("all"))) {
+							clauses.selectEnd = i;
+						} else if (word.equals("top") && words <= 3 && clauses.selectEnd > 0) {
+							clauses.hasTop = true;
+						}
+						if (word.equals("by") && "order".equals(previous)) {
+							clauses.hasOrderBy = true;
+						} else if (word.equals("union") || word.equals("except") || word.equals("intersect")) {
+							clauses.hasSetOperator = true;
+						} else if (word.equals("option")) {
+							clauses.end = start;
+						}
+						previous = word;
+					}
+				} else {
+					i++;
+				}
+			}
+			return clauses;
+		}
+
+		private static boolean isWordChar(char c) {
+			return Character.isLetterOrDigit(c) || c == '_' || c == '@' || c == '#' || c == '$';
+		}
 
-        return 0;
+		//aspas repetidas são escapes, a leitura continua depois delas
+		private static int skipQuoted(String sql, int start, char close) {
+			var i = start + 1;
+			while (i < sql.length()) {
+				if (sql.charAt(i) == close) {
+					if (i + 1 < sql.length() && sql.charAt(i + 1) == close) {
+						i += 2;
+						continue;
+					}
+					return i + 1;
+				}
+				i++;
+			}
+			return i;
+		}
+
+		private static int skipUntil(String sql, int start, String close) {
+			var end = sql.indexOf(close, start + 2);
+			return end < 0 ? sql.length() : end + close.length();
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package io.github.crudzilla.persistency.types;
+
+import org.hibernate.type.NumericBooleanType;
+
+/**
+ * Boolean gravado como inteiro (0 ou 1), no lugar do {@link io.github.crudzilla.persistency.converters.IntToBooleanConverter}.
+ * A coluna é lida com <code>getInt</code>, e os valores são sempre <code>Boolean.TRUE</code> ou <code>Boolean.FALSE</code>.
+ */
+public class CRUDZillaIntBooleanType extends NumericBooleanType {
+
+    public static final CRUDZillaIntBooleanType INSTANCE = new CRUDZillaIntBooleanType();
+
+    @Override
+    public String getName() {
+        return "crudzilla_int_boolean";
+    }
+
+    @Override
+    public String[] getRegistrationKeys() {
+        return new String[]{getName(), boolean.class.getName(), Boolean.class.getName()};
+    }
+}
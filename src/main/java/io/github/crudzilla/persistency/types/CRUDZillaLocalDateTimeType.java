@@ -0,0 +1,30 @@
+package io.github.crudzilla.persistency.types;
+
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.java.LocalDateTimeJavaDescriptor;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+/**
+ * LocalDateTime lido e gravado direto no JDBC, no lugar do
+ * {@link io.github.crudzilla.persistency.converters.LocalDateTimeConverter}.
+ */
+public class CRUDZillaLocalDateTimeType extends AbstractSingleColumnStandardBasicType<LocalDateTime> {
+
+    public static final CRUDZillaLocalDateTimeType INSTANCE = new CRUDZillaLocalDateTimeType();
+
+    public CRUDZillaLocalDateTimeType() {
+        super(new JavaTimeSqlTypeDescriptor<>(Types.TIMESTAMP, LocalDateTime.class), LocalDateTimeJavaDescriptor.INSTANCE);
+    }
+
+    @Override
+    public String getName() {
+        return "crudzilla_local_date_time";
+    }
+
+    @Override
+    protected boolean registerUnderJavaType() {
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.crudzilla.persistency.types;
+
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.java.LocalDateJavaDescriptor;
+
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * LocalDate lido e gravado direto no JDBC, no lugar do {@link io.github.crudzilla.persistency.converters.LocalDateConverter}.
+ */
+public class CRUDZillaLocalDateType extends AbstractSingleColumnStandardBasicType<LocalDate> {
+
+    public static final CRUDZillaLocalDateType INSTANCE = new CRUDZillaLocalDateType();
+
+    public CRUDZillaLocalDateType() {
+        super(new JavaTimeSqlTypeDescriptor<>(Types.DATE, LocalDate.class), LocalDateJavaDescriptor.INSTANCE);
+    }
+
+    @Override
+    public String getName() {
+        return "crudzilla_local_date";
+    }
+
+    @Override
+    protected boolean registerUnderJavaType() {
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.crudzilla.persistency.types;
+
+import org.hibernate.boot.model.TypeContributions;
+import org.hibernate.boot.model.TypeContributor;
+import org.hibernate.service.ServiceRegistry;
+
+/**
+ * Registra os tipos do CRUDZilla para todos os atributos Boolean, LocalDate e LocalDateTime, substituindo os
+ * converters de {@link io.github.crudzilla.persistency.converters}, que não devem ser registrados junto: os converters
+ * com <code>autoApply</code> têm prioridade sobre os tipos.
+ * <p>
+ * Registrado na propriedade <code>hibernate.type_contributors</code>:
+ * <pre>
+ * properties.put("hibernate.type_contributors", (TypeContributorList) () -&gt; List.of(new CRUDZillaTypeContributor()));
+ * </pre>
+ */
+public class CRUDZillaTypeContributor implements TypeContributor {
+
+    @Override
+    public void contribute(TypeContributions typeContributions, ServiceRegistry serviceRegistry) {
+        typeContributions.contributeType(CRUDZillaIntBooleanType.INSTANCE);
+        typeContributions.contributeType(CRUDZillaLocalDateType.INSTANCE);
+        typeContributions.contributeType(CRUDZillaLocalDateTimeType.INSTANCE);
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.crudzilla.persistency.types;
+
+import org.hibernate.type.descriptor.ValueBinder;
+import org.hibernate.type.descriptor.ValueExtractor;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.JavaTypeDescriptor;
+import org.hibernate.type.descriptor.sql.BasicBinder;
+import org.hibernate.type.descriptor.sql.BasicExtractor;
+import org.hibernate.type.descriptor.sql.SqlTypeDescriptor;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Lê e grava os tipos do java.time direto no JDBC (<code>getObject(coluna, LocalDate.class)</code> e
+ * <code>setObject</code>, do JDBC 4.2), sem passar por <code>java.sql.Date</code> ou <code>Timestamp</code>.
+ */
+class JavaTimeSqlTypeDescriptor<T> implements SqlTypeDescriptor {
+
+    private final int sqlType;
+    private final Class<T> type;
+
+    JavaTimeSqlTypeDescriptor(int sqlType, Class<T> type) {
+        this.sqlType = sqlType;
+        this.type = type;
+    }
+
+    @Override
+    public int getSqlType() {
+        return sqlType;
+    }
+
+    //o remapeamento do dialeto voltaria para os descritores de java.sql.Date e Timestamp
+    @Override
+    public boolean canBeRemapped() {
+        return false;
+    }
+
+    @Override
+    public <X> ValueBinder<X> getBinder(JavaTypeDescriptor<X> javaTypeDescriptor) {
+        return new BasicBinder<>(javaTypeDescriptor, this) {
+            @Override
+            protected void doBind(PreparedStatement st, X value, int index, WrapperOptions options) throws SQLException {
+                st.setObject(index, javaTypeDescriptor.unwrap(value, type, options));
+            }
+
+            @Override
+            protected void doBind(CallableStatement st, X value, String name, WrapperOptions options) throws SQLException {
+                st.setObject(name, javaTypeDescriptor.unwrap(value, type, options));
+            }
+        };
+    }
+
+    @Override
+    public <X> ValueExtractor<X> getExtractor(JavaTypeDescriptor<X> javaTypeDescriptor) {
+        return new BasicExtractor<>(javaTypeDescriptor, this) {
+            @Override
+            protected X doExtract(ResultSet rs, String name, WrapperOptions options) throws SQLException {
+                return javaTypeDescriptor.wrap(rs.getObject(name, type), options);
+            }
+
+            @Override
+            protected X doExtract(CallableStatement statement, int index, WrapperOptions options) throws SQLException {
+                return javaTypeDescriptor.wrap(statement.getObject(index, type), options);
+            }
+
+            @Override
+            protected X doExtract(CallableStatement statement, String name, WrapperOptions options) throws SQLException {
+                return javaTypeDescriptor.wrap(statement.getObject(name, type), options);
+            }
+        };
+    }
+}
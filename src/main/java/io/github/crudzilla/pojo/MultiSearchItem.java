@@ -0,0 +1,35 @@
+package io.github.crudzilla.pojo;
+
+import java.util.Map;
+
+public class MultiSearchItem {
+
+    private String key;
+    private Map<String, String> filter = Map.of();
+
+    public MultiSearchItem() { /* Construtor basico necessário pro JSONMAPPER */ }
+
+    public MultiSearchItem(String key, Map<String, String> filter) {
+        this.key = key;
+        this.filter = filter;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Os mesmos params aceitos na consulta da entidade.
+     */
+    public Map<String, String> getFilter() {
+        return filter;
+    }
+
+    public void setFilter(Map<String, String> filter) {
+        this.filter = filter == null ? Map.of() : filter;
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.crudzilla.querybuilder;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.querydsl.core.types.Order;
 import io.swagger.annotations.ApiParam;
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -7,9 +9,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public abstract class CRUDZillaFilter {
 
+    public static final int DEFAULT_MAX_PAGE_SIZE = 100;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(CRUDZillaFilter.class);
 
     @ApiParam(value = "Sorting order", defaultValue = "ASC")
@@ -24,6 +31,15 @@ public abstract class CRUDZillaFilter {
     @ApiParam(value = "Offset for the results", defaultValue = "0")
     private int offset = 0;
 
+    @ApiParam(value = "Comma separated fields to return. Empty means all fields")
+    private List<String> fields = List.of();
+
+    @JsonIgnore
+    private boolean largePage;
+
+    @JsonIgnore
+    private int maxPageSize = DEFAULT_MAX_PAGE_SIZE;
+
     public Order getSortOrder() {
         return sortOrder;
     }
@@ -44,12 +60,12 @@ public abstract class CRUDZillaFilter {
         return pageSize;
     }
 
+    /**
+     * O pageSize é limitado ao {@link #getMaxPageSize()} na consulta, e não aqui: o limite só é conhecido depois do
+     * bind dos params.
+     */
     public void setPageSize(int pageSize) {
-        if (pageSize <= 100) {
-            this.pageSize = pageSize;
-        } else {
-            this.pageSize = 100;
-        }
+        this.pageSize = pageSize;
     }
 
     public int getOffset() {
@@ -60,6 +76,49 @@ public abstract class CRUDZillaFilter {
         this.offset = offset;
     }
 
+    /**
+     * Página maior que o <code>maxPageSize</code> da entidade. Só liga o fetch size do JDBC: a página inteira ainda é carregada em
+     * memória. Só é ligado pelo servidor, nunca pelos params.
+     */
+    public boolean isLargePage() {
+        return largePage;
+    }
+
+    public void setLargePage(boolean largePage) {
+        this.largePage = largePage;
+    }
+
+    /**
+     * Maior pageSize aceito pela consulta; os maiores são reduzidos a ele. Só é alterado pelo servidor, conforme o
+     * {@link io.github.crudzilla.CRUDZillaConfig} da entidade, nunca pelos params.
+     */
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<String> fields) {
+        this.fields = fields == null ? List.of() : fields;
+    }
+
+    /**
+     * Os filtros chegam como query params, então a lista de fields vem separada por vírgulas.
+     */
+    @JsonProperty("fields")
+    public void setFields(String fields) {
+        setFields(Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toList()));
+    }
+
     /**
      * Isso é necessário para poder gerar a Key do Cache corretamente.
      */
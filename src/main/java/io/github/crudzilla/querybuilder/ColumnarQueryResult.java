@@ -0,0 +1,235 @@
+package io.github.crudzilla.querybuilder;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * {@link QueryResult} stored column by column: the field names once and then one array per column.
+ * Numeric and boolean columns are kept in primitive arrays, with a null bitmap (bit i set means the value
+ * at row i is null) when they have nulls. Columns that are null on every row, like the unselected ones,
+ * have no array at all.
+ * <p>
+ * The columns are built from the fetched rows, so this only makes the response smaller: the rows are still
+ * created while fetching.
+ */
+public class ColumnarQueryResult<T> extends QueryResult<T> {
+
+    private static final Map<Map.Entry<ObjectMapper, Class<?>>, List<Accessor>> ACCESSORS_CACHE = new ConcurrentHashMap<>();
+
+    private final int rows;
+    private final List<String> columns;
+    private final List<Object> values;
+    private final List<long[]> nulls;
+
+    private ColumnarQueryResult(int rows, List<String> columns, List<Object> values, List<long[]> nulls, Long count) {
+        super(List.of(), count);
+        this.rows = rows;
+        this.columns = columns;
+        this.values = values;
+        this.nulls = nulls;
+    }
+
+    /**
+     * Converts the rows (beans or records, all of the same class) of a result to columns. The columns are the
+     * properties the mapper would serialize, with the same names, so <code>@JsonIgnore</code> and
+     * <code>@JsonProperty</code> work as for the rows.
+     *
+     * @throws IllegalArgumentException for {@link Tuple} and array rows, which need the projection to be read.
+     */
+    public static <T> ColumnarQueryResult<T> of(QueryResult<T> queryResult, ObjectMapper mapper) {
+        return of(queryResult, null, mapper);
+    }
+
+    /**
+     * Converts the rows of a result to columns. {@link Tuple} and array rows are read by the args of the projection,
+     * named after their aliases or paths; other rows are read as in {@link #of(QueryResult, ObjectMapper)}.
+     */
+    public static <T> ColumnarQueryResult<T> of(QueryResult<T> queryResult, Expression<?> projection, ObjectMapper mapper) {
+        var data = queryResult.getData();
+        if (data.isEmpty()) {
+            return new ColumnarQueryResult<>(0, List.of(), List.of(), List.of(), queryResult.getCount());
+        }
+
+        var rowClass = data.get(0).getClass();
+        List<Accessor> accessors;
+        if (Tuple.class.isAssignableFrom(rowClass) || rowClass.isArray()) {
+            if (!(projection instanceof FactoryExpression)) {
+                throw new IllegalArgumentException("The projection is needed to read the columns of " + rowClass.getName());
+            }
+            accessors = getAccessors(((FactoryExpression<?>) projection).getArgs());
+        } else {
+            accessors = getAccessors(mapper, rowClass);
+        }
+        var columns = new ArrayList<String>(accessors.size());
+        var values = new ArrayList<>(accessors.size());
+        var nulls = new ArrayList<long[]>(accessors.size());
+        for (Accessor accessor : accessors) {
+            var column = new ColumnBuilder(accessor.getType(), data.size());
+            for (int row = 0; row < data.size(); row++) {
+                column.set(row, accessor.get(data.get(row)));
+            }
+            columns.add(accessor.getName());
+            values.add(column.getValues());
+            nulls.add(column.getNulls());
+        }
+        return new ColumnarQueryResult<>(data.size(), columns, values, nulls, queryResult.getCount());
+    }
+
+    @Override
+    @JsonIgnore
+    public List<T> getData() {
+        return super.getData();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * One array per column, or null for the columns that are null on every row.
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * One null bitmap per column (as in {@link BitSet#toLongArray()}), or null for the columns without nulls.
+     */
+    public List<long[]> getNulls() {
+        return nulls;
+    }
+
+    private static List<Accessor> getAccessors(ObjectMapper mapper, Class<?> rowClass) {
+        var key = Map.<ObjectMapper, Class<?>>entry(mapper, rowClass);
+        var accessors = ACCESSORS_CACHE.get(key);
+        if (accessors == null) {
+            accessors = findAccessors(mapper, rowClass);
+            ACCESSORS_CACHE.putIfAbsent(key, accessors);
+        }
+        return accessors;
+    }
+
+    private static List<Accessor> findAccessors(ObjectMapper mapper, Class<?> rowClass) {
+        var accessors = new ArrayList<Accessor>();
+        for (BeanPropertyDefinition property : mapper.getSerializationConfig()
+                .introspect(mapper.constructType(rowClass)).findProperties()) {
+            if (property.couldSerialize() && property.getAccessor() != null) {
+                accessors.add(Accessor.of(property.getName(), property.getAccessor()));
+            }
+        }
+        return List.copyOf(accessors);
+    }
+
+    private static List<Accessor> getAccessors(List<Expression<?>> args) {
+        var accessors = new ArrayList<Accessor>(args.size());
+        for (int i = 0; i < args.size(); i++) {
+            var index = i;
+            accessors.add(new Accessor(getColumnName(args.get(i), i), args.get(i).getType(),
+                    row -> row instanceof Tuple ? ((Tuple) row).get(index, Object.class) : ((Object[]) row)[index]));
+        }
+        return accessors;
+    }
+
+    private static String getColumnName(Expression<?> arg, int index) {
+        if (arg instanceof Operation && ((Operation<?>) arg).getOperator() == Ops.ALIAS) {
+            return getColumnName(((Operation<?>) arg).getArg(1), index);
+        }
+        return arg instanceof Path ? ((Path<?>) arg).getMetadata().getName() : "column" + index;
+    }
+
+    private static final class Accessor {
+        private final String name;
+        private final Class<?> type;
+        private final Function<Object, Object> getter;
+
+        private Accessor(String name, Class<?> type, Function<Object, Object> getter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+        }
+
+        static Accessor of(String name, AnnotatedMember member) {
+            member.fixAccess(true);
+            return new Accessor(name, member.getRawType(), member::getValue);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        Object get(Object row) {
+            return getter.apply(row);
+        }
+    }
+
+    private static final class ColumnBuilder {
+        private final Object values;
+        private final BitSet nulls;
+        private final int size;
+
+        private ColumnBuilder(Class<?> type, int size) {
+            this.size = size;
+            this.nulls = new BitSet(size);
+            if (type == int.class || type == Integer.class || type == short.class || type == Short.class
+                    || type == byte.class || type == Byte.class) {
+                values = new int[size];
+            } else if (type == long.class || type == Long.class) {
+                values = new long[size];
+            } else if (type == double.class || type == Double.class || type == float.class || type == Float.class) {
+                values = new double[size];
+            } else if (type == boolean.class || type == Boolean.class) {
+                values = new boolean[size];
+            } else {
+                values = new Object[size];
+            }
+        }
+
+        //native queries may bring another numeric type than the one of the projection, like BigInteger for a Long
+        void set(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+            } else if (values instanceof int[]) {
+                ((int[]) values)[row] = ((Number) value).intValue();
+            } else if (values instanceof long[]) {
+                ((long[]) values)[row] = ((Number) value).longValue();
+            } else if (values instanceof double[]) {
+                ((double[]) values)[row] = ((Number) value).doubleValue();
+            } else if (values instanceof boolean[]) {
+                ((boolean[]) values)[row] = value instanceof Number ? ((Number) value).intValue() != 0 : (Boolean) value;
+            } else {
+                ((Object[]) values)[row] = value;
+            }
+        }
+
+        Object getValues() {
+            return nulls.cardinality() == size ? null : values;
+        }
+
+        long[] getNulls() {
+            return nulls.isEmpty() || nulls.cardinality() == size ? null : nulls.toLongArray();
+        }
+    }
+}
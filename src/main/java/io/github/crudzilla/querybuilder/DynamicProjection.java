@@ -0,0 +1,60 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.QBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Projection that only contains the selected columns. Unlike the addIfColumnSelected helpers, which replace the
+ * unselected columns by <code>CAST(NULL AS ...)</code>, the unselected columns are left out of the SQL, so the
+ * tables that only fed them are not referenced and {@link QueryBuilderJPASQL#addJoinIfNeeded} skips their joins.
+ * The result is a bean of type T, filled by setters, where the unselected properties stay null.
+ */
+public class DynamicProjection<T> {
+
+    private final Class<? extends T> type;
+    private final List<String> selectedColumns;
+    private final List<Expression<?>> expressions = new ArrayList<>();
+
+    public DynamicProjection(Class<? extends T> type, List<String> selectedColumns) {
+        this.type = type;
+        this.selectedColumns = selectedColumns;
+    }
+
+    /**
+     * Adds a column that is always selected.
+     */
+    public DynamicProjection<T> add(String alias, Expression<?> path) {
+        expressions.add(ExpressionUtils.as(path, alias));
+        return this;
+    }
+
+    public DynamicProjection<T> addIfColumnSelected(String columnName, String alias, Expression<?> path) {
+        if (isColumnSelected(columnName)) {
+            add(alias, path);
+        }
+        return this;
+    }
+
+    public DynamicProjection<T> addIfAnyColumnSelected(List<String> columnNames, String alias, Expression<?> path) {
+        if (columnNames.stream().anyMatch(this::isColumnSelected)) {
+            add(alias, path);
+        }
+        return this;
+    }
+
+    public boolean isColumnSelected(String columnName) {
+        return selectedColumns != null && selectedColumns.contains(columnName);
+    }
+
+    public QBean<T> build() {
+        if (expressions.isEmpty()) {
+            throw new IllegalStateException("No column selected for the projection of " + type.getName());
+        }
+        return Projections.bean(type, expressions.toArray(new Expression<?>[0]));
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.sql.SQLServer2012Templates;
+import com.querydsl.sql.SQLServerTemplates;
+import com.querydsl.sql.SQLTemplates;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * IN lists that neither break on the limit of 2100 parameters per statement of SQL Server nor fill the plan cache with
+ * one plan per list length. The values are padded, repeating the last one, up to the next power of two, so lists of
+ * similar lengths share the same SQL, and lists longer than {@link #MAX_BUCKET} are split. The padded lists of a
+ * statement never have more than {@link #MAX_PARAMETERS} values, leaving the rest of the limit to the other parameters
+ * of the query.
+ */
+public final class InClauses {
+
+    public static final int MAX_BUCKET = 1024;
+    public static final int MAX_PARAMETERS = 2000;
+
+    private InClauses() {/* Hide do construtor de classe utilitária */ }
+
+    /**
+     * The values followed by copies of the last one, up to the next power of two.
+     */
+    public static <T> List<T> pad(List<T> values) {
+        return pad(values, Integer.MAX_VALUE);
+    }
+
+    private static <T> List<T> pad(List<T> values, int max) {
+        if (values.size() <= 1) {
+            return values;
+        }
+        var bucket = Math.min(Integer.highestOneBit(values.size() - 1) << 1, Math.max(max, values.size()));
+        var padded = new ArrayList<T>(bucket);
+        padded.addAll(values);
+        var last = values.get(values.size() - 1);
+        while (padded.size() < bucket) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    /**
+     * The values split in padded chunks of up to {@link #MAX_BUCKET} values, for one query per chunk.
+     */
+    public static <T> List<List<T>> partition(Collection<T> values) {
+        var list = List.copyOf(values);
+        var chunks = new ArrayList<List<T>>((list.size() + MAX_BUCKET - 1) / MAX_BUCKET);
+        for (int from = 0; from < list.size(); from += MAX_BUCKET) {
+            chunks.add(pad(list.subList(from, Math.min(from + MAX_BUCKET, list.size()))));
+        }
+        return chunks;
+    }
+
+    /**
+     * <code>path IN (values)</code> with the values padded, or many IN lists joined by OR when there are more than
+     * {@link #MAX_BUCKET} values. The padding stops at {@link #MAX_PARAMETERS} values.
+     *
+     * @throws IllegalArgumentException when there are more than {@link #MAX_PARAMETERS} values, which would break the
+     * parameter limit of SQL Server: use {@link #in(SQLTemplates, SimpleExpression, Collection)}, or
+     * {@link #partition(Collection)} for one query per chunk.
+     */
+    public static <T> BooleanExpression in(SimpleExpression<T> path, Collection<T> values) {
+        if (values.size() > MAX_PARAMETERS) {
+            throw new IllegalArgumentException("IN lists are limited to " + MAX_PARAMETERS + " values, got "
+                    + values.size() + ": use InClauses.in(templates, path, values) or one query per InClauses.partition(values)");
+        }
+        return in(path, values, MAX_PARAMETERS);
+    }
+
+    private static <T> BooleanExpression in(SimpleExpression<T> path, Collection<T> values, int maxParameters) {
+        if (values.size() <= 1) {
+            return path.in(values);
+        }
+        var list = List.copyOf(values);
+        var predicates = new ArrayList<Predicate>((list.size() + MAX_BUCKET - 1) / MAX_BUCKET);
+        var parameters = 0;
+        for (int from = 0; from < list.size(); from += MAX_BUCKET) {
+            var chunk = pad(list.subList(from, Math.min(from + MAX_BUCKET, list.size())), maxParameters - parameters);
+            parameters += chunk.size();
+            predicates.add(path.in(chunk));
+        }
+        return predicates.size() == 1 ? (BooleanExpression) predicates.get(0) : Expressions.asBoolean(ExpressionUtils.anyOf(predicates));
+    }
+
+    /**
+     * Same as {@link #in(SimpleExpression, Collection)}, but on SQL Server, lists of integers longer than
+     * {@link #MAX_BUCKET} are sent as a single comma separated parameter, turned into a table by
+     * <code>STRING_SPLIT</code> (SQL Server 2016 or later). So they don't count against the parameter limit and share
+     * a single plan, whatever their length. Other databases, which accept many more parameters, get the OR of the
+     * padded lists whatever their length.
+     *
+     * @throws IllegalArgumentException on SQL Server, for lists longer than {@link #MAX_PARAMETERS} that can't be
+     * sent with <code>STRING_SPLIT</code>.
+     */
+    public static <T> BooleanExpression in(SQLTemplates templates, SimpleExpression<T> path, Collection<T> values) {
+        if (!(templates instanceof SQLServerTemplates)) {
+            return in(path, values, Integer.MAX_VALUE);
+        }
+        if (values.size() > MAX_BUCKET && templates instanceof SQLServer2012Templates && isIntegers(values)) {
+            var joined = values.stream().map(String::valueOf).collect(Collectors.joining(","));
+            return Expressions.booleanTemplate("{0} in (select value from string_split({1}, ','))", path, joined);
+        }
+        return in(path, values);
+    }
+
+    private static boolean isIntegers(Collection<?> values) {
+        for (Object value : values) {
+            if (!(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
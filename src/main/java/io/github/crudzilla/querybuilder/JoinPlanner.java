@@ -0,0 +1,73 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.RelationalPath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds the optional joins of a query in a single pass. The candidate joins are registered in the order they
+ * would appear in the SQL, and {@link #apply()} adds only the ones whose table is referenced by the query
+ * (projection, filters, sorting, or the condition of another join that is added).
+ */
+public class JoinPlanner {
+
+    private final JPASQLQuery<?> query;
+    private final List<CandidateJoin> candidates = new ArrayList<>();
+
+    public JoinPlanner(JPASQLQuery<?> query) {
+        this.query = query;
+    }
+
+    public JoinPlanner innerJoin(RelationalPath<?> table, Predicate condition) {
+        candidates.add(new CandidateJoin(table, condition, false));
+        return this;
+    }
+
+    public JoinPlanner leftJoin(RelationalPath<?> table, Predicate condition) {
+        candidates.add(new CandidateJoin(table, condition, true));
+        return this;
+    }
+
+    public void apply() {
+        var referenced = ReferencedPaths.of(query.getMetadata());
+        var needed = new boolean[candidates.size()];
+        //Backwards, so a join needed only by the condition of a later join is found too
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            var candidate = candidates.get(i);
+            if (referenced.contains(candidate.table)) {
+                needed[i] = true;
+                ReferencedPaths.collect(candidate.condition, referenced);
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            if (needed[i]) {
+                candidates.get(i).addTo(query);
+            }
+        }
+    }
+
+    private static final class CandidateJoin {
+        private final Path<?> table;
+        private final Predicate condition;
+        private final boolean left;
+
+        private CandidateJoin(RelationalPath<?> table, Predicate condition, boolean left) {
+            this.table = table;
+            this.condition = condition;
+            this.left = left;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private void addTo(JPASQLQuery query) {
+            if (left) {
+                query.leftJoin((RelationalPath) table).on(condition);
+            } else {
+                query.innerJoin((RelationalPath) table).on(condition);
+            }
+        }
+    }
+}
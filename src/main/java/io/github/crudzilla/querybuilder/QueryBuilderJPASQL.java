@@ -1,5 +1,7 @@
 package io.github.crudzilla.querybuilder;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.QueryFlag;
 import com.querydsl.core.support.QueryBase;
 import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.Order;
@@ -7,7 +9,11 @@ import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.*;
 import com.querydsl.jpa.sql.JPASQLQuery;
 import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLServerTemplates;
 import com.querydsl.sql.SQLTemplates;
+import io.github.crudzilla.CRUDZillaInvalidPageSize;
+import io.github.crudzilla.persistency.SQLTemplatesFactory;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.persistence.EntityManager;
@@ -15,8 +21,10 @@ import javax.persistence.PersistenceContext;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
@@ -30,11 +38,20 @@ public abstract class QueryBuilderJPASQL<F extends CRUDZillaFilter, T> {
     public static final BooleanExpression BOOLEAN_NULL_EXPRESSION = Expressions.booleanTemplate("CAST(NULL AS SMALLINT)");
     public static final DateExpression DATE_NULL_EXPRESSION = Expressions.dateTemplate(LocalDate.class, "CAST (NULL AS DATE)");
     public static final DateTimeExpression DATETIME_NULL_EXPRESSION = Expressions.dateTimeTemplate(Timestamp.class, "CAST (NULL AS TIMESTAMP)");
+    public static final String OPTION_RECOMPILE = "recompile";
+    public static final String OPTION_OPTIMIZE_FOR_UNKNOWN = "optimize for unknown";
+
+    private static final int MAX_QUERY_SHAPES = 256;
+    private static final int LARGE_PAGE_FETCH_SIZE = 1000;
 
     @PersistenceContext
     protected EntityManager entityManager;
     @Autowired
     protected SQLTemplates sqlTemplate;
+    @Autowired
+    protected ObjectMapper mapper;
+
+    private final QueryShapeCache queryShapeCache = new QueryShapeCache(MAX_QUERY_SHAPES);
 
     public abstract Expression<? extends Comparable> getOrderByExpression(String column);
 
@@ -42,18 +59,103 @@ public abstract class QueryBuilderJPASQL<F extends CRUDZillaFilter, T> {
 
     public QueryResult<T> build(F filtro) {
         JPASQLQuery<T> query = createQuery(filtro);
-        long totalRegistros = getCount(query);
+        var selection = query.getMetadata().getProjection();
+        var queryOptions = getQueryOptions(filtro);
+        var windowCount = isWindowCountEnabled(query);
+        var countQuery = windowCount ? query.clone() : query;
+        Long totalRegistros = windowCount ? null : getCount(countQuery, queryOptions);
         addOrderBy(filtro, query);
         addPaging(filtro, query);
-        var queryResult = new QueryResult<>(query.fetch(), totalRegistros);
+        addQueryOptions(query, queryOptions);
+        var hints = filtro.isLargePage() ? Map.<String, Object>of(QueryHints.FETCH_SIZE, LARGE_PAGE_FETCH_SIZE) : Map.<String, Object>of();
+        List<T> data;
+        if (windowCount) {
+            @SuppressWarnings("unchecked")
+            var projection = (Expression<T>) query.getMetadata().getProjection();
+            var rows = fetch(query.select(new WindowCountProjection<>(projection)), hints);
+            data = new ArrayList<>(rows.size());
+            rows.forEach(row -> data.add(row.getRow()));
+            //a page past the last one has no row to bring the total
+            totalRegistros = !rows.isEmpty() ? rows.get(0).getTotal()
+                    : filtro.getOffset() == 0 ? 0 : getCount(countQuery, queryOptions);
+        } else {
+            data = fetch(query, hints);
+        }
+        var queryResult = new QueryResult<>(data, totalRegistros);
         postProcessResults(queryResult);
-        return queryResult;
+        return isColumnarResult(filtro) ? ColumnarQueryResult.of(queryResult, selection, mapper) : queryResult;
+    }
+
+    /**
+     * Override this method to answer with a {@link ColumnarQueryResult}, which is more compact for wide
+     * queries and long pages, mainly when most of the columns are not selected.
+     */
+    protected boolean isColumnarResult(F filter) {
+        return false;
+    }
+
+    /**
+     * Whether the total of rows comes with the page, through a <code>count(*) over ()</code> column, instead of a
+     * second query; by default when the database has window functions. Override this method to return false when
+     * overriding {@link #getCount(JPASQLQuery, List)}, which the window count doesn't call, or to always count with a
+     * second query.
+     */
+    protected boolean useWindowCount() {
+        return SQLTemplatesFactory.getBanco(sqlTemplate).map(SQLTemplatesFactory.Banco::supportsWindowCount).orElse(false);
+    }
+
+    private boolean isWindowCountEnabled(JPASQLQuery<T> query) {
+        return useWindowCount() && WindowCountProjection.supports(query.getMetadata());
+    }
+
+    /**
+     * Override this method to add an <code>option (...)</code> clause to the queries of the filter (search and count)
+     * on SQL Server, like {@link #OPTION_RECOMPILE} when the best plan depends too much on the filter values
+     * (parameter sniffing), or {@link #OPTION_OPTIMIZE_FOR_UNKNOWN}. Ignored on the other databases.
+     */
+    protected List<String> getQueryOptions(F filter) {
+        return List.of();
+    }
+
+    /**
+     * Override this method to return false when {@link #createQuery(CRUDZillaFilter)} sets hints, lock or flush modes
+     * on the query, which the {@link QueryShapeCache} does not carry over.
+     */
+    protected boolean isQueryShapeCacheEnabled() {
+        return true;
+    }
+
+    protected <R> List<R> fetch(JPASQLQuery<R> query) {
+        return fetch(query, Map.of());
+    }
+
+    protected <R> List<R> fetch(JPASQLQuery<R> query, Map<String, Object> hints) {
+        if (isQueryShapeCacheEnabled()) {
+            return queryShapeCache.fetch(entityManager, sqlTemplate, query, hints);
+        }
+        hints.forEach(query::setHint);
+        return query.fetch();
     }
 
     protected void postProcessResults(QueryResult<T> queryResult) {
         //Override this method if you need extra behavior after fetching the results
     }
 
+    /**
+     * Columns to be returned for the filter: the requested fields ({@link CRUDZillaFilter#getFields()}), or all the
+     * columns when none was requested. Pass it to the addIfColumnSelected helpers so the other fields are never read.
+     */
+    protected List<String> getSelectedColumns(F filter, List<String> allColumns) {
+        return filter.getFields().isEmpty() ? allColumns : filter.getFields();
+    }
+
+    /**
+     * Starts a projection that leaves the unselected columns (and the joins that only fed them) out of the SQL.
+     */
+    protected <D extends T> DynamicProjection<D> dynamicProjection(Class<D> type, List<String> selectedColumns) {
+        return new DynamicProjection<>(type, selectedColumns);
+    }
+
     protected boolean isColumnSelected(String columnName, List<String> selectedColumns) {
         return selectedColumns != null && selectedColumns.contains(columnName);
     }
@@ -85,21 +187,36 @@ public abstract class QueryBuilderJPASQL<F extends CRUDZillaFilter, T> {
         }
     }
 
+    /**
+     * Inner joins the table only if the query already references it. When there are many optional joins,
+     * prefer {@link #planJoins(JPASQLQuery)}, which decides all of them in a single pass.
+     */
     protected void addJoinIfNeeded(JPASQLQuery<T> query, RelationalPath queryDslTable, BooleanExpression join) {
-        if (query.getSQL().getSQL().contains((CharSequence) queryDslTable.getMetadata().getElement())) {
+        if (ReferencedPaths.of(query.getMetadata()).contains(queryDslTable)) {
             query.innerJoin(queryDslTable).on(join);
         }
     }
 
+    /**
+     * Left joins the table only if the query already references it.
+     */
     protected void addLeftJoinIfNeeded(JPASQLQuery<T> query, RelationalPath queryDslTable, BooleanExpression join) {
-        if (query.getSQL().getSQL().contains((CharSequence) queryDslTable.getMetadata().getElement())) {
+        if (ReferencedPaths.of(query.getMetadata()).contains(queryDslTable)) {
             query.leftJoin(queryDslTable).on(join);
         }
     }
 
-    protected static <C> void filterIfNotEmpty(JPASQLQuery query, Collection<C> filter, SimpleExpression<C> path) {
+    protected JoinPlanner planJoins(JPASQLQuery<T> query) {
+        return new JoinPlanner(query);
+    }
+
+    /**
+     * Filters by the values of the collection, padded and split as
+     * {@link InClauses#in(SQLTemplates, SimpleExpression, Collection)} for the {@link #sqlTemplate} of the database.
+     */
+    protected <C> void filterIfNotEmpty(JPASQLQuery query, Collection<C> filter, SimpleExpression<C> path) {
         if (isNotEmpty(filter)) {
-            query.where(path.in(filter));
+            query.where(InClauses.in(sqlTemplate, path, filter));
         }
     }
 
@@ -127,11 +244,15 @@ public abstract class QueryBuilderJPASQL<F extends CRUDZillaFilter, T> {
         }
     }
 
+    /**
+     * @throws CRUDZillaInvalidPageSize for negative page sizes: fetching all the rows is never allowed.
+     */
     protected void addPaging(F filter, JPASQLQuery<T> query) {
-        if (filter.getPageSize() >= 0 ) {
-            query.limit(filter.getPageSize())
-                    .offset(filter.getOffset());
+        if (filter.getPageSize() < 0) {
+            throw new CRUDZillaInvalidPageSize();
         }
+        query.limit(Math.min(filter.getPageSize(), filter.getMaxPageSize()))
+                .offset(filter.getOffset());
     }
 
     @SuppressWarnings("unchecked")
@@ -143,9 +264,25 @@ public abstract class QueryBuilderJPASQL<F extends CRUDZillaFilter, T> {
     }
 
     protected long getCount(JPASQLQuery<T> query) {
-        return new JPASQLQuery<T>(entityManager, sqlTemplate)
-                .from(query, new BeanPath<Object>(String.class, "count_from_alias"))
-                .fetchCount();
+        return getCount(query, List.of());
+    }
+
+    protected long getCount(JPASQLQuery<T> query, List<String> queryOptions) {
+        var countQuery = new JPASQLQuery<T>(entityManager, sqlTemplate)
+                .from(query, new BeanPath<Object>(String.class, "count_from_alias"));
+        addQueryOptions(countQuery, queryOptions);
+        if (!isQueryShapeCacheEnabled()) {
+            return countQuery.fetchCount();
+        }
+        var count = fetch(countQuery.select(Wildcard.countAsInt));
+        return count.isEmpty() ? 0 : ((Number) count.get(0)).longValue();
+    }
+
+    //the option clause is only valid at the end of the outer query, so it can't be added before the count wraps it
+    private void addQueryOptions(JPASQLQuery<?> query, List<String> queryOptions) {
+        if (!queryOptions.isEmpty() && sqlTemplate instanceof SQLServerTemplates) {
+            query.addFlag(QueryFlag.Position.END, " option (" + String.join(", ", queryOptions) + ")");
+        }
     }
 
     public StringExpression addIfColumnSelected(
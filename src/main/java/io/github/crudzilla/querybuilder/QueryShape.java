@@ -0,0 +1,238 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.QueryFlag;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.ConstantImpl;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.Template;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.RelationalPath;
+import com.querydsl.sql.SQLOps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Shape of a query: a key that is the same for every query rendering to the same SQL, plus its bind values in the
+ * order the SQL serializer binds them. Constant values never go into the key, only their types (and the size of the
+ * collections), so queries that only differ on the filter values share the shape. Paging is not part of the shape.
+ */
+final class QueryShape implements Visitor<Void, Void> {
+
+    private final Configuration configuration;
+    private final StringBuilder key = new StringBuilder();
+    private final List<Object> constants = new ArrayList<>();
+    private boolean cacheable = true;
+
+    private QueryShape(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    static QueryShape of(Configuration configuration, QueryMetadata metadata) {
+        var shape = new QueryShape(configuration);
+        shape.visit(metadata, false);
+        return shape;
+    }
+
+    String getKey() {
+        return key.toString();
+    }
+
+    List<Object> getConstants() {
+        return constants;
+    }
+
+    /**
+     * False when the query has parts the shape can not tell apart by structure, like paged subqueries.
+     */
+    boolean isCacheable() {
+        return cacheable;
+    }
+
+    private void visit(QueryMetadata metadata, boolean subQuery) {
+        if (subQuery && metadata.getModifiers().isRestricting()) {
+            //the paging of subqueries is rendered with the values inlined in the SQL
+            cacheable = false;
+        }
+        if (metadata.isDistinct()) {
+            key.append("distinct ");
+        }
+        visitFlags(metadata, QueryFlag.Position.WITH, QueryFlag.Position.START, QueryFlag.Position.START_OVERRIDE,
+                QueryFlag.Position.AFTER_SELECT);
+        key.append("select ");
+        handle(metadata.getProjection());
+        visitFlags(metadata, QueryFlag.Position.AFTER_PROJECTION);
+        for (JoinExpression join : metadata.getJoins()) {
+            key.append(' ').append(join.getType()).append(' ');
+            for (JoinFlag flag : join.getFlags()) {
+                key.append(flag.getPosition()).append(':');
+                handle(flag.getFlag());
+            }
+            handle(join.getTarget());
+            if (join.getCondition() != null) {
+                key.append(" on ");
+                handle(join.getCondition());
+            }
+        }
+        visitFlags(metadata, QueryFlag.Position.BEFORE_FILTERS);
+        if (metadata.getWhere() != null) {
+            key.append(" where ");
+            handle(metadata.getWhere());
+        }
+        visitFlags(metadata, QueryFlag.Position.AFTER_FILTERS, QueryFlag.Position.BEFORE_GROUP_BY);
+        if (!metadata.getGroupBy().isEmpty()) {
+            key.append(" group by ");
+            metadata.getGroupBy().forEach(this::handle);
+        }
+        visitFlags(metadata, QueryFlag.Position.AFTER_GROUP_BY, QueryFlag.Position.BEFORE_HAVING);
+        if (metadata.getHaving() != null) {
+            key.append(" having ");
+            handle(metadata.getHaving());
+        }
+        visitFlags(metadata, QueryFlag.Position.AFTER_HAVING, QueryFlag.Position.BEFORE_ORDER);
+        if (!metadata.getOrderBy().isEmpty()) {
+            key.append(" order by ");
+            for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+                handle(order.getTarget());
+                key.append(' ').append(order.getOrder()).append(' ').append(order.getNullHandling()).append(',');
+            }
+        }
+        visitFlags(metadata, QueryFlag.Position.AFTER_ORDER, QueryFlag.Position.END);
+    }
+
+    private void visitFlags(QueryMetadata metadata, QueryFlag.Position... positions) {
+        for (QueryFlag.Position position : positions) {
+            for (QueryFlag flag : metadata.getFlags()) {
+                if (flag.getPosition() == position) {
+                    key.append(' ').append(position).append(':');
+                    handle(flag.getFlag());
+                }
+            }
+        }
+    }
+
+    private void handle(Expression<?> expression) {
+        if (expression != null) {
+            expression.accept(this, null);
+        }
+        key.append(',');
+    }
+
+    //Same rules of SerializerBase.handleTemplate, so the converted constants (like the ones of startsWith) are collected
+    private void handleTemplate(Template template, List<?> args) {
+        for (Template.Element element : template.getElements()) {
+            var converted = element.convert(args);
+            if (converted instanceof Expression) {
+                ((Expression<?>) converted).accept(this, null);
+            } else if (element.isString()) {
+                key.append(converted);
+            } else {
+                visitConstant(converted);
+            }
+        }
+    }
+
+    private void visitConstant(Object constant) {
+        if (constant instanceof Collection) {
+            key.append('(');
+            for (Object element : (Collection<?>) constant) {
+                visitConstant(element);
+            }
+            key.append(')');
+        } else {
+            key.append('?').append(constant == null ? "null" : constant.getClass().getName());
+            constants.add(constant);
+        }
+    }
+
+    @Override
+    public Void visit(Constant<?> expr, Void context) {
+        visitConstant(expr.getConstant());
+        return null;
+    }
+
+    @Override
+    public Void visit(FactoryExpression<?> expr, Void context) {
+        key.append("new ").append(expr.getType().getName()).append('(');
+        expr.getArgs().forEach(this::handle);
+        key.append(')');
+        return null;
+    }
+
+    //The rewrites done by SQLSerializer.visitOperation before falling back to the templates
+    @Override
+    public Void visit(Operation<?> expr, Void context) {
+        Operator operator = expr.getOperator();
+        List<? extends Expression<?>> args = expr.getArgs();
+        if (operator == Ops.LIKE && args.get(1) instanceof Constant) {
+            var escape = String.valueOf(configuration.getTemplates().getEscapeChar());
+            var escaped = args.get(1).toString().replace(escape, escape + escape);
+            args = List.of(args.get(0), ConstantImpl.create(escaped));
+        } else if (operator == Ops.STRING_CAST) {
+            operator = SQLOps.CAST;
+            args = List.of(args.get(0), ConstantImpl.create(configuration.getTypeNameForCast(String.class)));
+        } else if (operator == Ops.NUMCAST) {
+            var targetType = (Class<?>) ((Constant<?>) args.get(1)).getConstant();
+            operator = SQLOps.CAST;
+            args = List.of(args.get(0), ConstantImpl.create(configuration.getTypeNameForCast(targetType)));
+        } else if (operator == Ops.ORDER) {
+            cacheable = false;
+        }
+
+        key.append(operator.name()).append('(');
+        var template = configuration.getTemplates().getTemplate(operator);
+        if (template != null) {
+            handleTemplate(template, args);
+        } else {
+            args.forEach(this::handle);
+        }
+        key.append(')');
+        return null;
+    }
+
+    @Override
+    public Void visit(ParamExpression<?> expr, Void context) {
+        key.append("?param:").append(expr.getName());
+        constants.add(expr);
+        return null;
+    }
+
+    @Override
+    public Void visit(Path<?> expr, Void context) {
+        if (expr instanceof RelationalPath && expr.getMetadata().isRoot()) {
+            key.append(((RelationalPath<?>) expr).getSchemaAndTable()).append(' ');
+        }
+        key.append(expr);
+        return null;
+    }
+
+    @Override
+    public Void visit(SubQueryExpression<?> expr, Void context) {
+        key.append('(');
+        visit(expr.getMetadata(), true);
+        key.append(')');
+        return null;
+    }
+
+    @Override
+    public Void visit(TemplateExpression<?> expr, Void context) {
+        key.append('{');
+        handleTemplate(expr.getTemplate(), expr.getArgs());
+        key.append('}');
+        return null;
+    }
+}
@@ -0,0 +1,225 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.jpa.NativeSQLSerializer;
+import com.querydsl.jpa.QueryHandler;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAUtil;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.SQLTemplates;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the SQL rendered for each {@link QueryShape}. The first query of a shape is rendered as usual and checked
+ * (same SQL as the query itself renders, bind values in the expected order); the next ones skip the rendering and only
+ * bind their values to the cached SQL, which also hits the native query plan cache of Hibernate. Paging is applied
+ * through {@link Query#setFirstResult(int)} and {@link Query#setMaxResults(int)}, so every page shares the same SQL.
+ * <p>
+ * Queries projecting entities fall back to {@link JPASQLQuery#fetch()}, as do the shapes that fail the check.
+ * Hints, lock and flush modes set directly on the {@link JPASQLQuery} are not carried over: pass the hints to
+ * {@link #fetch(EntityManager, SQLTemplates, JPASQLQuery, Map)}, or turn the cache off for the query builders that
+ * need the others.
+ */
+public class QueryShapeCache {
+
+    private static final RenderedQuery NOT_CACHEABLE = new RenderedQuery(null, null);
+
+    private final Map<String, RenderedQuery> renderedQueries;
+    private volatile Configuration configuration;
+
+    /**
+     * @param maxShapes past this number of shapes, the least recently used one is dropped
+     */
+    public QueryShapeCache(int maxShapes) {
+        this.renderedQueries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RenderedQuery> eldest) {
+                return size() > maxShapes;
+            }
+        });
+    }
+
+    /**
+     * Number of shapes kept, including the ones that could not be cached.
+     */
+    public int size() {
+        return renderedQueries.size();
+    }
+
+    public <T> List<T> fetch(EntityManager entityManager, SQLTemplates templates, JPASQLQuery<T> query) {
+        return fetch(entityManager, templates, query, Map.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> fetch(EntityManager entityManager, SQLTemplates templates, JPASQLQuery<T> query,
+                             Map<String, Object> hints)
+    {
+        var metadata = query.getMetadata();
+        if (metadata.getProjection() == null || hasEntityProjection(metadata.getProjection())) {
+            return fetchUncached(query, hints);
+        }
+
+        var configuration = getConfiguration(templates);
+        var shape = QueryShape.of(configuration, metadata);
+        if (!shape.isCacheable()) {
+            return fetchUncached(query, hints);
+        }
+
+        var queryHandler = JPAProvider.getTemplates(entityManager).getQueryHandler();
+        var key = templates.getClass().getName() + ':' + shape.getKey();
+        var renderedQuery = renderedQueries.get(key);
+        if (renderedQuery == null) {
+            renderedQuery = render(configuration, queryHandler, query, shape);
+            if (renderedQuery == null) {
+                return fetchUncached(query, hints);
+            }
+            renderedQueries.putIfAbsent(key, renderedQuery);
+        }
+        if (renderedQuery == NOT_CACHEABLE) {
+            return fetchUncached(query, hints);
+        }
+
+        var nativeQuery = entityManager.createNativeQuery(renderedQuery.sql);
+        var projection = metadata.getProjection();
+        var args = getProjectionArgs(projection);
+        for (int i = 0; i < args.size(); i++) {
+            if (renderedQuery.scalars[i] != null) {
+                queryHandler.addScalar(nativeQuery, renderedQuery.scalars[i], args.get(i).getType());
+            }
+        }
+        JPAUtil.setConstants(nativeQuery, shape.getConstants(), metadata.getParams());
+        hints.forEach(nativeQuery::setHint);
+        var modifiers = metadata.getModifiers();
+        if (modifiers.getOffsetAsInteger() != null) {
+            nativeQuery.setFirstResult(modifiers.getOffsetAsInteger());
+        }
+        if (modifiers.getLimitAsInteger() != null) {
+            nativeQuery.setMaxResults(modifiers.getLimitAsInteger());
+        }
+
+        if (projection instanceof FactoryExpression
+                && !queryHandler.transform(nativeQuery, (FactoryExpression<?>) projection)) {
+            return newInstances((FactoryExpression<T>) projection, nativeQuery.getResultList());
+        }
+        return nativeQuery.getResultList();
+    }
+
+    private static <T> List<T> fetchUncached(JPASQLQuery<T> query, Map<String, Object> hints) {
+        hints.forEach(query::setHint);
+        return query.fetch();
+    }
+
+    /**
+     * Renders the query without its paging, or answers null when the check is inconclusive (two bind values are
+     * equal, so their order can not be checked) and the next query of the shape must try again.
+     */
+    private static RenderedQuery render(Configuration configuration, QueryHandler queryHandler,
+                                        JPASQLQuery<?> query, QueryShape shape)
+    {
+        var metadata = query.getMetadata();
+        if (!serialize(configuration, queryHandler, metadata).toString().equals(query.getSQL().getSQL())) {
+            //unions and queries created with another configuration
+            return NOT_CACHEABLE;
+        }
+
+        var unpaged = metadata.clone();
+        unpaged.setModifiers(QueryModifiers.EMPTY);
+        var serializer = serialize(configuration, queryHandler, unpaged);
+        if (!serializer.getConstants().equals(shape.getConstants())) {
+            return NOT_CACHEABLE;
+        }
+        if (new HashSet<>(shape.getConstants()).size() < shape.getConstants().size()) {
+            return null;
+        }
+
+        var aliases = serializer.getAliases();
+        var args = getProjectionArgs(metadata.getProjection());
+        var scalars = new String[args.size()];
+        var used = new HashSet<String>();
+        for (int i = 0; i < args.size(); i++) {
+            for (String scalar : aliases.getOrDefault(args.get(i), List.of())) {
+                if (used.add(scalar)) {
+                    scalars[i] = scalar;
+                    break;
+                }
+            }
+        }
+        return new RenderedQuery(serializer.toString(), scalars);
+    }
+
+    private static NativeSQLSerializer serialize(Configuration configuration, QueryHandler queryHandler,
+                                                 QueryMetadata metadata)
+    {
+        var serializer = new NativeSQLSerializer(configuration, queryHandler.wrapEntityProjections());
+        serializer.serialize(metadata, false);
+        return serializer;
+    }
+
+    private Configuration getConfiguration(SQLTemplates templates) {
+        var current = configuration;
+        if (current == null || current.getTemplates() != templates) {
+            current = new Configuration(templates);
+            configuration = current;
+        }
+        return current;
+    }
+
+    private static List<? extends Expression<?>> getProjectionArgs(Expression<?> projection) {
+        if (projection instanceof FactoryExpression) {
+            return ((FactoryExpression<?>) projection).getArgs();
+        }
+        return List.of(projection);
+    }
+
+    private static boolean hasEntityProjection(Expression<?> projection) {
+        for (Expression<?> arg : getProjectionArgs(projection)) {
+            if (arg instanceof EntityPath || arg.getType().isAnnotationPresent(Entity.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Same as the result list of JPASQLQuery when the QueryHandler can not transform the results
+    private static <T> List<T> newInstances(FactoryExpression<T> projection, List<?> rows) {
+        var results = new ArrayList<T>(rows.size());
+        for (Object row : rows) {
+            if (row == null) {
+                results.add(null);
+            } else {
+                var values = row.getClass().isArray() ? (Object[]) row : new Object[]{row};
+                if (projection.getArgs().size() < values.length) {
+                    var shortened = new Object[projection.getArgs().size()];
+                    System.arraycopy(values, 0, shortened, 0, shortened.length);
+                    values = shortened;
+                }
+                results.add(projection.newInstance(values));
+            }
+        }
+        return results;
+    }
+
+    private static final class RenderedQuery {
+        private final String sql;
+        private final String[] scalars;
+
+        private RenderedQuery(String sql, String[] scalars) {
+            this.sql = sql;
+            this.scalars = scalars;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the root paths (tables and aliases) referenced by a query, walking its expression tree instead
+ * of rendering the SQL.
+ */
+final class ReferencedPaths implements Visitor<Void, Set<Path<?>>> {
+
+    private static final ReferencedPaths VISITOR = new ReferencedPaths();
+
+    private ReferencedPaths() { }
+
+    static Set<Path<?>> of(QueryMetadata metadata) {
+        var roots = new HashSet<Path<?>>();
+        collect(metadata, roots);
+        return roots;
+    }
+
+    static void collect(Expression<?> expression, Set<Path<?>> roots) {
+        if (expression != null) {
+            expression.accept(VISITOR, roots);
+        }
+    }
+
+    private static void collect(QueryMetadata metadata, Set<Path<?>> roots) {
+        collect(metadata.getProjection(), roots);
+        for (JoinExpression join : metadata.getJoins()) {
+            collect(join.getTarget(), roots);
+            collect(join.getCondition(), roots);
+        }
+        collect(metadata.getWhere(), roots);
+        metadata.getGroupBy().forEach(expression -> collect(expression, roots));
+        collect(metadata.getHaving(), roots);
+        for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+            collect(order.getTarget(), roots);
+        }
+    }
+
+    @Override
+    public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+        return null;
+    }
+
+    @Override
+    public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+        expr.getArgs().forEach(arg -> collect(arg, roots));
+        return null;
+    }
+
+    @Override
+    public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+        expr.getArgs().forEach(arg -> collect(arg, roots));
+        return null;
+    }
+
+    @Override
+    public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Path<?> expr, Set<Path<?>> roots) {
+        roots.add(expr.getRoot());
+        return null;
+    }
+
+    @Override
+    public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+        collect(expr.getMetadata(), roots);
+        return null;
+    }
+
+    @Override
+    public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+        for (Object arg : expr.getArgs()) {
+            if (arg instanceof Expression) {
+                collect((Expression<?>) arg, roots);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import io.github.crudzilla.CRUDZillaInvalidSort;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columns a query can be sorted by. The sort column of the filter may have many comma separated columns, each one
+ * optionally prefixed by <code>-</code> (descending) or <code>+</code> (ascending); without a prefix the sort order
+ * of the filter is used. Columns that are not mapped are rejected with {@link CRUDZillaInvalidSort}.
+ * <p>
+ * The id is always added as the last sort column, so rows with the same values on the sorted columns keep the same
+ * order on every page. Columns that are not backed by an index are handled by the {@link UnindexedSortPolicy}.
+ */
+public class SortMappings {
+
+    public enum UnindexedSortPolicy {
+        /** Sorts by the unindexed columns. */
+        ALLOW,
+        /** Ignores the unindexed columns, sorting by the indexed ones and the id. */
+        DOWNGRADE,
+        /** Rejects the sort with {@link CRUDZillaInvalidSort}. */
+        REJECT
+    }
+
+    private final Expression<? extends Comparable<?>> id;
+    private final Map<String, Mapping> mappings = new LinkedHashMap<>();
+    private UnindexedSortPolicy unindexedSortPolicy = UnindexedSortPolicy.ALLOW;
+
+    /**
+     * @param id unique column used as tiebreaker, usually the primary key.
+     */
+    public SortMappings(Expression<? extends Comparable<?>> id) {
+        this.id = id;
+    }
+
+    /**
+     * Maps a column backed by an index (or the leading column of one).
+     */
+    public SortMappings indexed(String column, Expression<? extends Comparable<?>> expression) {
+        mappings.put(column, new Mapping(expression, true));
+        return this;
+    }
+
+    public SortMappings unindexed(String column, Expression<? extends Comparable<?>> expression) {
+        mappings.put(column, new Mapping(expression, false));
+        return this;
+    }
+
+    public SortMappings unindexedSortPolicy(UnindexedSortPolicy unindexedSortPolicy) {
+        this.unindexedSortPolicy = unindexedSortPolicy;
+        return this;
+    }
+
+    public boolean isSortable(String column) {
+        return mappings.containsKey(column);
+    }
+
+    /**
+     * Expression of a single column, or of the id when the column is empty.
+     */
+    public Expression<? extends Comparable<?>> getExpression(String column) {
+        if (column == null || column.isEmpty()) {
+            return id;
+        }
+        var mapping = mappings.get(column);
+        if (mapping == null) {
+            throw new CRUDZillaInvalidSort("Column " + column + " can not be used for sorting");
+        }
+        return mapping.expression;
+    }
+
+    public List<OrderSpecifier<?>> resolve(String sortColumns, Order defaultOrder) {
+        var orderBy = new ArrayList<OrderSpecifier<?>>();
+        var sortedById = false;
+        for (String sortColumn : sortColumns == null ? new String[0] : sortColumns.split(",")) {
+            var column = sortColumn.trim();
+            if (column.isEmpty()) {
+                continue;
+            }
+            var order = defaultOrder;
+            if (column.startsWith("-") || column.startsWith("+")) {
+                order = column.startsWith("-") ? Order.DESC : Order.ASC;
+                column = column.substring(1);
+            }
+
+            var mapping = mappings.get(column);
+            if (mapping == null) {
+                throw new CRUDZillaInvalidSort("Column " + column + " can not be used for sorting");
+            }
+            if (!mapping.indexed && unindexedSortPolicy == UnindexedSortPolicy.REJECT) {
+                throw new CRUDZillaInvalidSort("Column " + column + " is not indexed and can not be used for sorting");
+            }
+            if (mapping.indexed || unindexedSortPolicy == UnindexedSortPolicy.ALLOW) {
+                orderBy.add(new OrderSpecifier<>(order, mapping.expression));
+                sortedById |= mapping.expression.equals(id);
+            }
+        }
+        if (!sortedById) {
+            orderBy.add(new OrderSpecifier<>(orderBy.isEmpty() ? defaultOrder : Order.ASC, id));
+        }
+        return orderBy;
+    }
+
+    private static final class Mapping {
+        private final Expression<? extends Comparable<?>> expression;
+        private final boolean indexed;
+
+        private Mapping(Expression<? extends Comparable<?>> expression, boolean indexed) {
+            this.expression = expression;
+            this.indexed = indexed;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.jpa.sql.JPASQLQuery;
+
+/**
+ * Query builder sorted by {@link SortMappings} instead of {@link #getOrderByExpression(String)}: the filter may sort
+ * by many columns, unknown columns are refused and the id is always added as the last sort column.
+ */
+public abstract class SortMappingsQueryBuilderJPASQL<F extends CRUDZillaFilter, T> extends QueryBuilderJPASQL<F, T> {
+
+    private volatile SortMappings sortMappings;
+
+    /**
+     * Sortable columns of the query. It's called only once per query builder.
+     */
+    protected abstract SortMappings createSortMappings();
+
+    @Override
+    public Expression<? extends Comparable<?>> getOrderByExpression(String column) {
+        return getSortMappings().getExpression(column);
+    }
+
+    @Override
+    protected void addOrderBy(F filter, JPASQLQuery<T> query) {
+        Order dir = filter.getSortOrder() == null ? Order.ASC : filter.getSortOrder();
+        query.orderBy(getSortMappings().resolve(filter.getSortColumn(), dir).toArray(new OrderSpecifier<?>[0]));
+    }
+
+    protected SortMappings getSortMappings() {
+        var current = sortMappings;
+        if (current == null) {
+            current = createSortMappings();
+            sortMappings = current;
+        }
+        return current;
+    }
+}
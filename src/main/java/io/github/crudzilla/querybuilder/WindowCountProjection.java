@@ -0,0 +1,95 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.sql.SQLExpressions;
+
+import javax.persistence.Entity;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Projection that adds <code>count(*) over ()</code> to the columns of another projection, so each row of the page
+ * also brings the total of rows of the search and no count query is needed.
+ */
+final class WindowCountProjection<T> extends FactoryExpressionBase<WindowCountProjection.Row<T>> {
+
+    private static final Expression<Long> TOTAL = SQLExpressions.count().over().as("crudzilla_total");
+
+    private final Expression<T> projection;
+    private final List<Expression<?>> args;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    WindowCountProjection(Expression<T> projection) {
+        super((Class) Row.class);
+        this.projection = projection;
+        this.args = new ArrayList<>(getColumns(projection));
+        this.args.add(TOTAL);
+    }
+
+    /**
+     * The total is wrong for distinct queries (the window is computed before the distinct), and entity projections
+     * are mapped by Hibernate, which has no place for the extra column.
+     */
+    static boolean supports(QueryMetadata metadata) {
+        if (metadata.getProjection() == null || metadata.isDistinct()) {
+            return false;
+        }
+        for (Expression<?> column : getColumns(metadata.getProjection())) {
+            if (column instanceof EntityPath || column.getType().isAnnotationPresent(Entity.class)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Row<T> newInstance(Object... values) {
+        var columns = Arrays.copyOf(values, values.length - 1);
+        var row = projection instanceof FactoryExpression
+                ? ((FactoryExpression<T>) projection).newInstance(columns)
+                : (T) columns[0];
+        return new Row<>(row, ((Number) values[values.length - 1]).longValue());
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    private static List<? extends Expression<?>> getColumns(Expression<?> projection) {
+        if (projection instanceof FactoryExpression) {
+            return ((FactoryExpression<?>) projection).getArgs();
+        }
+        return List.of(projection);
+    }
+
+    static final class Row<T> {
+        private final T row;
+        private final long total;
+
+        private Row(T row, long total) {
+            this.row = row;
+            this.total = total;
+        }
+
+        T getRow() {
+            return row;
+        }
+
+        long getTotal() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.crudzilla;
+
+import org.junit.jupiter.api.Test;
+import sample.domain.SampleEntity;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.hasKey;
+
+class CRUDZillaCacheSettingsTest {
+
+    @Test
+    void of__caches_only_the_reference_entities() {
+        var settings = CRUDZillaCacheSettings.of(List.of(SampleEntity.class, Country.class));
+
+        assertThat(settings, hasEntry("hibernate.classcache." + Country.class.getName(), "read-write"));
+        assertThat(settings, not(hasKey("hibernate.classcache." + SampleEntity.class.getName())));
+        assertThat(settings, hasEntry("hibernate.cache.use_second_level_cache", "true"));
+        assertThat(settings, hasEntry("hibernate.cache.use_query_cache", "true"));
+        assertThat(settings, hasEntry("hibernate.cache.region.factory_class", "jcache"));
+    }
+
+    @Test
+    void of__is_empty_without_reference_entities() {
+        assertThat(CRUDZillaCacheSettings.of(List.of(SampleEntity.class)), anEmptyMap());
+    }
+
+    @CRUDZillaConfig(key = "country", cacheableReference = true)
+    private static class Country {
+    }
+}
@@ -13,12 +13,18 @@ import org.junit.jupiter.api.Test;
 import sample.domain.SampleEntity;
 import sample.SampleProjection;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.Arrays.asList;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -30,7 +36,9 @@ class CRUDZillaControllerTest extends ControllerTest {
     private final ObjectMapper mapper = new ObjectMapper();
     private final CRUDZilla crudZilla = mock(CRUDZilla.class);
 
-    private final CRUDZillaController controller = new CRUDZillaController(mapper, crudZilla);
+    private final CRUDZillaSecurity crudZillaSecurity = mock(CRUDZillaSecurity.class);
+
+    private final CRUDZillaController controller = new CRUDZillaController(mapper, crudZilla, crudZillaSecurity);
 
     @Override
     public Object getController() {
@@ -58,6 +66,38 @@ class CRUDZillaControllerTest extends ControllerTest {
                 .andExpect(content().string("some error occured"));
     }
 
+    @Test
+    void multiSearch__should_return_the_results_in_order() throws Exception {
+        when(crudZillaSecurity.check(anyString(), eq(CRUDZillaOperations.SEARCH))).thenReturn(true);
+        when(crudZilla.multiSearch(anyList())).thenReturn(asList(
+                new QueryResult<>(List.of("a"), 1L),
+                new QueryResult<>(Collections.emptyList(), 0L)));
+
+        mockMvc.perform(post("/api/auth/crudzilla/_multi")
+                        .content("""
+                                [ { "key": "first", "filter": { "name": "a" } }, { "key": "second" } ]
+                                """)
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        [ { "data":["a"], "count":1 }, { "data":[], "count":0 } ]
+                        """));
+    }
+
+    @Test
+    void multiSearch__should_return_forbidden_when_any_key_is_not_allowed() throws Exception {
+        when(crudZillaSecurity.check("first", CRUDZillaOperations.SEARCH)).thenReturn(true);
+        when(crudZillaSecurity.check("second", CRUDZillaOperations.SEARCH)).thenReturn(false);
+
+        mockMvc.perform(post("/api/auth/crudzilla/_multi")
+                        .content("""
+                                [ { "key": "first" }, { "key": "second" } ]
+                                """)
+                        .contentType("application/json"))
+                .andExpect(status().isForbidden());
+        verify(crudZilla, never()).multiSearch(anyList());
+    }
+
     @Test
     void save__should_call_crudzilla_and_return_entity_and_OK() throws Exception {
         var content = """
@@ -65,7 +105,10 @@ class CRUDZillaControllerTest extends ControllerTest {
                 """;
         var entity = mock(CRUDZillaEntity.class);
         when(entity.getId()).thenReturn(12345);
-        when(crudZilla.save("myentity", content)).thenReturn(entity);
+        when(crudZilla.save(eq("myentity"), any(InputStream.class))).then(io -> {
+            var body = new String(io.getArgument(1, InputStream.class).readAllBytes(), StandardCharsets.UTF_8);
+            return content.equals(body) ? entity : null;
+        });
         mockMvc.perform(post("/api/auth/crudzilla/myentity")
                         .content(content)
                         .contentType("application/json"))
@@ -78,7 +121,7 @@ class CRUDZillaControllerTest extends ControllerTest {
         var exception = mock(JsonProcessingException.class);
         var content = "some invalid json";
         when(exception.getMessage()).thenReturn("some error occured");
-        when(crudZilla.save("myentity", content)).thenThrow(exception);
+        when(crudZilla.save(eq("myentity"), any(InputStream.class))).thenThrow(exception);
         mockMvc.perform(post("/api/auth/crudzilla/myentity")
                         .content(content)
                         .contentType("application/json"))
@@ -90,7 +133,7 @@ class CRUDZillaControllerTest extends ControllerTest {
     void save__should_return_bad_request_when_validation_error_occurs() throws Exception {
         var exception = new InvalidEntityException(asList("some field is required", "some other problem"));
         var content = "some invalid json";
-        when(crudZilla.save("myentity", content)).thenThrow(exception);
+        when(crudZilla.save(eq("myentity"), any(InputStream.class))).thenThrow(exception);
         mockMvc.perform(post("/api/auth/crudzilla/myentity")
                         .content(content)
                         .contentType("application/json"))
@@ -100,13 +143,44 @@ class CRUDZillaControllerTest extends ControllerTest {
                         """));
     }
 
+    @Test
+    void save__should_return_payload_too_large_when_body_exceeds_the_limit() throws Exception {
+        when(crudZilla.save(eq("myentity"), any(InputStream.class))).thenThrow(new CRUDZillaPayloadTooLarge());
+        mockMvc.perform(post("/api/auth/crudzilla/myentity")
+                        .content("{}")
+                        .contentType("application/json"))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void upsert__should_return_the_number_of_entities_saved() throws Exception {
+        when(crudZilla.upsert(eq("myentity"), any(InputStream.class))).thenReturn(2);
+
+        mockMvc.perform(post("/api/auth/crudzilla/myentity/upsert")
+                        .content("""
+                                [ { "id": 1, "name": "A" }, { "id": 2, "name": "B" } ]
+                                """)
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+    }
+
     @Test
     void toggleActive__should_call_crudzilla_and_return_ok() throws Exception {
         mockMvc.perform(post("/api/auth/crudzilla/myentity/123/toggle-active")
                         .contentType("application/json"))
                 .andExpect(status().isOk());
 
-        verify(crudZilla).toggleActive("myentity", "123");
+        verify(crudZilla).toggleActive("myentity", "123", null);
+    }
+
+    @Test
+    void toggleActive__should_pass_the_version() throws Exception {
+        mockMvc.perform(post("/api/auth/crudzilla/myentity/123/toggle-active?version=7")
+                        .contentType("application/json"))
+                .andExpect(status().isOk());
+
+        verify(crudZilla).toggleActive("myentity", "123", "7");
     }
 
     @Test
@@ -129,6 +203,51 @@ class CRUDZillaControllerTest extends ControllerTest {
                         """, true));
     }
 
+    @Test
+    void getById__should_return_only_requested_fields() throws Exception {
+        when(crudZilla.getById("sample", "1234", List.of("name"))).thenReturn(Map.of("id", 1234, "name", "Some example"));
+        mockMvc.perform(get("/api/auth/crudzilla/sample/1234")
+                        .param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("""
+                        { "id":1234, "name":"Some example" }
+                        """, true));
+
+        verify(crudZilla, never()).getById("sample", "1234");
+    }
+
+    @Test
+    void getById__should_return_not_modified_when_etag_matches() throws Exception {
+        when(crudZilla.getETag("sample", "1234")).thenReturn("1234-7");
+        mockMvc.perform(get("/api/auth/crudzilla/sample/1234")
+                        .header("If-None-Match", "\"1234-7\""))
+                .andExpect(status().isNotModified());
+
+        verify(crudZilla, never()).getById(any(), any());
+    }
+
+    @Test
+    void getById__should_return_entity_with_etag_when_etag_changed() throws Exception {
+        when(crudZilla.getETag("sample", "1234")).thenReturn("1234-8");
+        when(crudZilla.getById("sample", "1234")).thenReturn(createSampleEntity(1234, "Some example"));
+        mockMvc.perform(get("/api/auth/crudzilla/sample/1234")
+                        .header("If-None-Match", "\"1234-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1234-8\""))
+                .andExpect(header().string("Vary", "Accept"));
+    }
+
+    @Test
+    void getAll__should_return_not_modified_when_etag_matches() throws Exception {
+        when(crudZilla.getAllETag("sample")).thenReturn("all-10-2");
+        mockMvc.perform(get("/api/auth/crudzilla/sample/all")
+                        .header("If-None-Match", "\"all-10-2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", "Accept"));
+
+        verify(crudZilla, never()).getAll(any());
+    }
+
     @Test
     @SuppressWarnings("rawtypes")
     void getAll__should_return_all_entitys() throws Exception {
@@ -0,0 +1,62 @@
+package io.github.crudzilla;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CRUDZillaExecutorTest {
+
+    @Test
+    void invokeAll__returns_results_in_the_same_order_of_the_tasks() throws Exception {
+        var executor = createExecutor(false, 2);
+
+        List<Callable<Integer>> tasks = List.of(() -> { Thread.sleep(50); return 1; }, () -> 2, () -> 3);
+
+        assertThat(executor.invokeAll(tasks), contains(1, 2, 3));
+    }
+
+    @Test
+    void invokeAll__never_runs_more_tasks_than_maxConcurrency() throws Exception {
+        var executor = createExecutor(true, 2);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        Callable<Integer> task = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return 0;
+        };
+        executor.invokeAll(List.of(task, task, task, task, task, task));
+
+        assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+    }
+
+    @Test
+    void invokeAll__throws_when_a_task_fails() {
+        var executor = createExecutor(false, 2);
+
+        List<Callable<Integer>> tasks = List.of(() -> 1, () -> { throw new IllegalStateException(); });
+
+        assertThrows(ExecutionException.class, () -> executor.invokeAll(tasks));
+    }
+
+    private CRUDZillaExecutor createExecutor(boolean virtualThreads, int maxConcurrency) {
+        var globalConfig = mock(CRUDZillaGlobalConfig.class);
+        when(globalConfig.virtualThreads()).thenReturn(virtualThreads);
+        when(globalConfig.maxConcurrency()).thenReturn(maxConcurrency);
+        var entityReflections = mock(EntityReflections.class);
+        when(entityReflections.getGlobalConfig()).thenReturn(globalConfig);
+        return new CRUDZillaExecutor(entityReflections);
+    }
+}
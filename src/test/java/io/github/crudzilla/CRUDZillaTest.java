@@ -3,14 +3,23 @@ package io.github.crudzilla;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.crudzilla.persistency.EntityNotFoundException;
 import io.github.crudzilla.pojo.AutocompleteOption;
+import io.github.crudzilla.pojo.MultiSearchItem;
+import io.github.crudzilla.querybuilder.CRUDZillaFilter;
+import io.github.crudzilla.querybuilder.QueryResult;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.ApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
 import sample.SampleSpringConfig;
 import sample.app.SampleEntityForm;
 import sample.domain.SampleEntity;
 import sample.domain.SampleEntityRepository;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.util.Arrays.asList;
@@ -20,6 +29,7 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 
@@ -28,7 +38,9 @@ class CRUDZillaTest {
     private final ApplicationContext applicationContext = mock(ApplicationContext.class);
     private final ObjectMapper mapper = new ObjectMapper();
     private EntityReflections entityReflections = mock(EntityReflections.class);
-    private CRUDZilla crudZilla = new CRUDZilla(entityReflections, mapper);
+    private CRUDZillaSecurity crudZillaSecurity = mock(CRUDZillaSecurity.class);
+    private CRUDZillaExecutor crudZillaExecutor = mock(CRUDZillaExecutor.class);
+    private CRUDZilla crudZilla = new CRUDZilla(entityReflections, mapper, crudZillaSecurity, crudZillaExecutor);
 
     @Test
     void save__happy_path_for_new_entity() throws Exception {
@@ -67,7 +79,7 @@ class CRUDZillaTest {
         var builder = mock(EntityBuilder.class);
         when(entityReflections.getEntityBuilder(any())).thenReturn(builder);
         var entityBuilded = new SampleEntity();
-        when(repository.getEagerLoaded(any())).thenReturn(entityBuilded);
+        when(repository.getForUpdate(any(), any())).thenReturn(entityBuilded);
         when(builder.buildExisting(any(), any())).thenReturn(entityBuilded);
         when(repository.put(entityBuilded)).then(io -> io.getArgument(0));
 
@@ -78,6 +90,95 @@ class CRUDZillaTest {
         assertThat(returnedEntity, is(entityBuilded));
     }
 
+    @Test
+    void save__for_update_loads_only_the_associations_of_the_form() throws Exception {
+        var sampleEntityClass = SampleEntity.class;
+        var repository = mock(SampleEntityRepository.class);
+        when(entityReflections.getRepository(sampleEntityClass)).thenReturn(repository);
+        var builder = mock(EntityBuilder.class);
+        when(entityReflections.getEntityBuilder(any())).thenReturn(builder);
+        when(builder.getFormAssociations(SampleEntityForm.class, sampleEntityClass)).thenReturn(Set.of("children"));
+        var entity = new SampleEntity();
+        when(repository.getForUpdate(123, Set.of("children"))).thenReturn(entity);
+
+        var form = new SampleEntityForm();
+        form.setId(123);
+        crudZilla.save(SampleEntity.class, form, null, true);
+
+        verify(builder).buildExisting(form, entity);
+        verify(repository, never()).getEagerLoaded(any());
+    }
+
+    @Test
+    void save__from_stream_should_read_the_form_class_resolved_from_the_key() throws Exception {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        when(entityReflections.getFormClass(sampleEntityClass)).then(io -> SampleEntityForm.class);
+        var globalConfig = globalConfigWithMaxBodySize(1024);
+        when(entityReflections.getGlobalConfig()).thenReturn(globalConfig);
+        var repository = mock(SampleEntityRepository.class);
+        when(entityReflections.getRepository(sampleEntityClass)).thenReturn(repository);
+        var builder = mock(EntityBuilder.class);
+        when(entityReflections.getEntityBuilder(any())).thenReturn(builder);
+        when(entityReflections.getNewEntity(any())).thenReturn(new SampleEntity());
+        var entityBuilded = new SampleEntity();
+        when(builder.buildNew(argThat(form -> "Renan".equals(((SampleEntityForm) form).getName())), any())).thenReturn(entityBuilded);
+        when(repository.put(entityBuilded)).then(io -> io.getArgument(0));
+
+        var returnedEntity = crudZilla.save("sample", stream("""
+                { "id":null, "name":"Renan"}
+        """));
+
+        assertThat(returnedEntity, is(entityBuilded));
+    }
+
+    @Test
+    void save__from_stream_should_not_limit_the_body_by_default() throws Exception {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        when(entityReflections.getFormClass(sampleEntityClass)).then(io -> SampleEntityForm.class);
+        when(entityReflections.getGlobalConfig()).thenReturn(SampleSpringConfig.class.getAnnotation(CRUDZillaGlobalConfig.class));
+        var repository = mock(SampleEntityRepository.class);
+        when(entityReflections.getRepository(sampleEntityClass)).thenReturn(repository);
+        var builder = mock(EntityBuilder.class);
+        when(entityReflections.getEntityBuilder(any())).thenReturn(builder);
+        when(entityReflections.getNewEntity(any())).thenReturn(new SampleEntity());
+        var entityBuilded = new SampleEntity();
+        when(builder.buildNew(any(), any())).thenReturn(entityBuilded);
+        when(repository.put(entityBuilded)).then(io -> io.getArgument(0));
+        var body = "{ \"id\":null, \"name\":\"" + "x".repeat(11 * 1024 * 1024) + "\"}";
+
+        var returnedEntity = crudZilla.save("sample", stream(body));
+
+        assertThat(returnedEntity, is(entityBuilded));
+    }
+
+    @Test
+    void save__from_stream_should_throw_when_body_exceeds_the_limit() {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        when(entityReflections.getFormClass(sampleEntityClass)).then(io -> SampleEntityForm.class);
+        var globalConfig = globalConfigWithMaxBodySize(10);
+        when(entityReflections.getGlobalConfig()).thenReturn(globalConfig);
+
+        assertThrows(CRUDZillaPayloadTooLarge.class, () -> crudZilla.save("sample", stream("""
+                { "id":null, "name":"Some name bigger than the limit"}
+        """)));
+    }
+
+    @Test
+    void save__from_stream_should_throw_when_the_limit_is_hit_inside_a_property() {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        when(entityReflections.getFormClass(sampleEntityClass)).then(io -> SampleEntityForm.class);
+        var globalConfig = globalConfigWithMaxBodySize(20_000);
+        when(entityReflections.getGlobalConfig()).thenReturn(globalConfig);
+        var body = "{ \"id\":null, \"name\":\"" + "x".repeat(50_000) + "\"}";
+
+        assertThrows(CRUDZillaPayloadTooLarge.class, () -> crudZilla.save("sample", stream(body)));
+        assertThrows(CRUDZillaPayloadTooLarge.class, () -> crudZilla.upsert("sample", stream("[" + body + "]")));
+    }
+
     @Test
     void save__happy_path_for_update_with_skip_persist() throws Exception {
         var sampleEntityClass = SampleEntity.class;
@@ -86,7 +187,7 @@ class CRUDZillaTest {
         var builder = mock(EntityBuilder.class);
         when(entityReflections.getEntityBuilder(any())).thenReturn(builder);
         var entityBuilded = new SampleEntity();
-        when(repository.getEagerLoaded(any())).thenReturn(entityBuilded);
+        when(repository.getForUpdate(any(), any())).thenReturn(entityBuilded);
         when(builder.buildExisting(any(), any())).thenReturn(entityBuilded);
         when(repository.put(entityBuilded)).then(io -> io.getArgument(0));
 
@@ -105,7 +206,7 @@ class CRUDZillaTest {
         var builder = mock(EntityBuilder.class);
         when(entityReflections.getEntityBuilder(any())).thenReturn(builder);
         var entityBuilded = new SampleEntity();
-        when(repository.getEagerLoaded(any())).thenReturn(entityBuilded);
+        when(repository.getForUpdate(any(), any())).thenReturn(entityBuilded);
         when(builder.buildExisting(any(), any())).thenReturn(entityBuilded);
         when(repository.put(entityBuilded)).then(io -> io.getArgument(0));
 
@@ -146,6 +247,72 @@ class CRUDZillaTest {
         assertThat(result, is(entity));
     }
 
+    @Test
+    void getById__with_fields_should_return_only_the_requested_fields() {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        var repository = mock(SampleEntityRepository.class);
+        when(entityReflections.getRepository(sampleEntityClass)).thenReturn(repository);
+        when(repository.convertId("123")).thenReturn(123);
+        when(repository.get(123)).thenReturn(createEntity(123, "Some Entity"));
+
+        var result = crudZilla.getById("sample", "123", List.of("name"));
+
+        assertThat(result, is(Map.of("id", 123, "name", "Some Entity")));
+        verify(repository, never()).getEagerLoaded(any());
+    }
+
+    @Test
+    void getById__with_unknown_field_should_throw() {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        var repository = mock(SampleEntityRepository.class);
+        when(entityReflections.getRepository(sampleEntityClass)).thenReturn(repository);
+        when(repository.convertId("123")).thenReturn(123);
+        when(repository.get(123)).thenReturn(createEntity(123, "Some Entity"));
+
+        assertThrows(CRUDZillaFieldNotFound.class, () -> crudZilla.getById("sample", "123", List.of("password")));
+    }
+
+    @Test
+    void getById__with_fields_should_not_return_properties_jackson_ignores() {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        var repository = mock(SampleEntityRepository.class);
+        when(entityReflections.getRepository(sampleEntityClass)).thenReturn(repository);
+        when(repository.convertId("123")).thenReturn(123);
+        var entity = createEntity(123, "Some Entity");
+        entity.setPasswordHash("secret");
+        when(repository.get(123)).thenReturn(entity);
+
+        assertThrows(CRUDZillaFieldNotFound.class, () -> crudZilla.getById("sample", "123", List.of("passwordHash")));
+        assertThrows(CRUDZillaFieldNotFound.class, () -> crudZilla.getById("sample", "123", List.of("class")));
+    }
+
+    @Test
+    void getETag__should_use_only_the_entity_version() {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        var repository = mock(SampleEntityRepository.class);
+        when(entityReflections.getRepository(sampleEntityClass)).thenReturn(repository);
+        when(repository.convertId("123")).thenReturn(123);
+        when(repository.getVersion(123)).thenReturn(7L);
+
+        assertThat(crudZilla.getETag("sample", "123"), is("123-7"));
+        verify(repository, never()).getEagerLoaded(any());
+    }
+
+    @Test
+    void getETag__should_be_null_when_entity_is_not_versioned() {
+        var sampleEntityClass = SampleEntity.class;
+        when(entityReflections.getEntityClass("sample")).then(io -> sampleEntityClass);
+        var repository = mock(SampleEntityRepository.class);
+        when(entityReflections.getRepository(sampleEntityClass)).thenReturn(repository);
+        when(repository.convertId("123")).thenReturn(123);
+
+        assertThat(crudZilla.getETag("sample", "123"), is(nullValue()));
+    }
+
     @Test
     void getAll__should_return_a_list_when_enabled() {
         var sampleEntityClass = SampleEntity.class;
@@ -242,6 +409,116 @@ class CRUDZillaTest {
         }
     }
 
+    @Test
+    void applyPageSizeLimit__reduces_to_the_max_page_size() {
+        var filter = filterWithPageSize(5000);
+        var config = configWithPageSizes(100, 0, "");
+        when(entityReflections.getConfig(SampleEntity.class)).thenReturn(config);
+
+        crudZilla.applyPageSizeLimit(SampleEntity.class, filter);
+
+        assertThat(filter.getPageSize(), is(100));
+        assertThat(filter.getMaxPageSize(), is(100));
+        assertThat(filter.isLargePage(), is(false));
+    }
+
+    @Test
+    void applyPageSizeLimit__allows_large_pages_for_the_large_page_authority() {
+        var filter = filterWithPageSize(5000);
+        var config = configWithPageSizes(100, 2000, "BATCH");
+        when(entityReflections.getConfig(SampleEntity.class)).thenReturn(config);
+        when(crudZillaSecurity.hasAuthority("BATCH")).thenReturn(true);
+
+        crudZilla.applyPageSizeLimit(SampleEntity.class, filter);
+
+        assertThat(filter.getPageSize(), is(2000));
+        assertThat(filter.getMaxPageSize(), is(2000));
+        assertThat(filter.isLargePage(), is(true));
+    }
+
+    @Test
+    void applyPageSizeLimit__keeps_the_limit_without_the_large_page_authority() {
+        var filter = filterWithPageSize(5000);
+        filter.setLargePage(true);
+        var config = configWithPageSizes(100, 2000, "BATCH");
+        when(entityReflections.getConfig(SampleEntity.class)).thenReturn(config);
+
+        crudZilla.applyPageSizeLimit(SampleEntity.class, filter);
+
+        assertThat(filter.getPageSize(), is(100));
+        assertThat(filter.isLargePage(), is(false));
+    }
+
+    @Test
+    void applyPageSizeLimit__refuses_unbounded_pages() {
+        var filter = filterWithPageSize(-1);
+
+        assertThrows(CRUDZillaInvalidPageSize.class, () -> crudZilla.applyPageSizeLimit(SampleEntity.class, filter));
+    }
+
+    @Test
+    void multiSearch__throws_the_exception_of_the_failed_search() throws Exception {
+        when(entityReflections.getFilterClassFromKey("missing")).thenThrow(new CRUDZillaKeyNotFound());
+        when(crudZillaExecutor.invokeAll(any())).then(invocation -> {
+            for (Callable<?> task : invocation.<Collection<Callable<?>>>getArgument(0)) {
+                try {
+                    task.call();
+                } catch (Exception e) {
+                    throw new ExecutionException(e);
+                }
+            }
+            return List.of();
+        });
+
+        var items = List.of(new MultiSearchItem("missing", Map.of()));
+
+        assertThrows(CRUDZillaKeyNotFound.class, () -> crudZilla.multiSearch(items));
+    }
+
+    @Test
+    void multiSearch__runs_each_search_through_the_proxy() throws Exception {
+        var proxy = mock(CRUDZilla.class);
+        ReflectionTestUtils.setField(crudZilla, "self", proxy);
+        var result = new QueryResult<Object>(List.of(), 0L);
+        when(proxy.search("users", Map.of())).thenReturn(result);
+        when(crudZillaExecutor.invokeAll(any())).then(invocation -> {
+            var results = new ArrayList<Object>();
+            for (Callable<?> task : invocation.<Collection<Callable<?>>>getArgument(0)) {
+                results.add(task.call());
+            }
+            return results;
+        });
+
+        var results = crudZilla.multiSearch(List.of(new MultiSearchItem("users", Map.of())));
+
+        assertThat(results, contains(result));
+        verify(proxy).search("users", Map.of());
+    }
+
+    private CRUDZillaFilter filterWithPageSize(int pageSize) {
+        var filter = new CRUDZillaFilter() { };
+        filter.setPageSize(pageSize);
+        return filter;
+    }
+
+    private CRUDZillaConfig configWithPageSizes(int maxPageSize, int largePageMaxSize, String largePageAuthority) {
+        var config = mock(CRUDZillaConfig.class);
+        when(config.maxPageSize()).thenReturn(maxPageSize);
+        when(config.largePageMaxSize()).thenReturn(largePageMaxSize);
+        when(config.largePageAuthority()).thenReturn(largePageAuthority);
+        return config;
+    }
+
+    private CRUDZillaGlobalConfig globalConfigWithMaxBodySize(long maxBodySize) {
+        var globalConfig = mock(CRUDZillaGlobalConfig.class);
+        when(globalConfig.maxSaveBodySize()).thenReturn(maxBodySize);
+        return globalConfig;
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
     private SampleEntity createEntity(int id, String name) {
         var e = new SampleEntity();
         e.setId(id);
@@ -0,0 +1,175 @@
+package io.github.crudzilla;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.github.crudzilla.querybuilder.QueryResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CRUDZillaWebConfigTest {
+
+    private final CRUDZillaWebConfig config = new CRUDZillaWebConfig(new ObjectMapper());
+
+    @Test
+    void extendMessageConverters__adds_binary_formats_after_json() {
+        var converters = new ArrayList<HttpMessageConverter<?>>(List.of(new MappingJackson2HttpMessageConverter()));
+
+        config.extendMessageConverters(converters);
+
+        assertThat(converters, contains(
+                instanceOf(MappingJackson2HttpMessageConverter.class),
+                instanceOf(MappingJackson2SmileHttpMessageConverter.class),
+                instanceOf(MappingJackson2CborHttpMessageConverter.class)
+        ));
+    }
+
+    @Test
+    void extendMessageConverters__replaces_the_converters_registered_by_spring() {
+        var springSmile = new MappingJackson2SmileHttpMessageConverter();
+        var converters = new ArrayList<HttpMessageConverter<?>>(List.of(new MappingJackson2HttpMessageConverter(), springSmile));
+
+        config.extendMessageConverters(converters);
+
+        assertThat(converters, contains(
+                instanceOf(MappingJackson2HttpMessageConverter.class),
+                instanceOf(MappingJackson2SmileHttpMessageConverter.class),
+                instanceOf(MappingJackson2CborHttpMessageConverter.class)
+        ));
+        assertThat(converters.get(1) == springSmile, is(false));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void smile_responses__use_the_setup_of_the_json_mapper() throws Exception {
+        try (var context = new AnnotationConfigWebApplicationContext()) {
+            context.setServletContext(new MockServletContext());
+            context.register(WebTestConfig.class);
+            context.refresh();
+            var mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+            var response = mockMvc.perform(get("/person").accept("application/x-jackson-smile"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-jackson-smile"))
+                    .andReturn().getResponse();
+
+            var read = new ObjectMapper(new SmileFactory()).readValue(response.getContentAsByteArray(), Map.class);
+            assertThat(read, is(Map.of("first_name", "Renan")));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void smile_converter__writes_query_results() throws Exception {
+        var converters = new ArrayList<HttpMessageConverter<?>>();
+        config.extendMessageConverters(converters);
+        var smileConverter = (HttpMessageConverter<Object>) converters.get(0);
+        var output = new MockHttpOutputMessage();
+
+        smileConverter.write(new QueryResult<>(List.of(Map.of("name", "Renan")), 1L), MediaType.parseMediaType("application/x-jackson-smile"), output);
+
+        var read = new ObjectMapper(new SmileFactory()).readValue(output.getBodyAsBytes(), Map.class);
+        assertThat(read, is(Map.of("data", List.of(Map.of("name", "Renan")), "count", 1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void smile_converter__reads_with_the_deserialization_setup_of_the_json_mapper() throws Exception {
+        var jsonMapper = new ObjectMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .registerModule(new SimpleModule().addDeserializer(Name.class, new StdDeserializer<>(Name.class) {
+                    @Override
+                    public Name deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                        return new Name(parser.getValueAsString().toUpperCase());
+                    }
+                }));
+        var converters = new ArrayList<HttpMessageConverter<?>>();
+        new CRUDZillaWebConfig(jsonMapper).extendMessageConverters(converters);
+        var smileConverter = (HttpMessageConverter<Object>) converters.get(0);
+        var body = new ObjectMapper(new SmileFactory()).writeValueAsBytes(Map.of("name", "renan", "unknown", 1));
+
+        var read = (Person) smileConverter.read((Class) Person.class, new MockHttpInputMessage(body));
+
+        assertThat(read.name.value, is("RENAN"));
+    }
+
+    static final class Name {
+        final String value;
+
+        Name(String value) {
+            this.value = value;
+        }
+    }
+
+    static final class Person {
+        public Name name;
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @Import(CRUDZillaWebConfig.class)
+    static class WebTestConfig {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+        }
+
+        @Bean
+        PersonController personController() {
+            return new PersonController();
+        }
+    }
+
+    @RestController
+    static class PersonController {
+        @GetMapping("/person")
+        public PersonView person() {
+            return new PersonView("Renan");
+        }
+    }
+
+    public static final class PersonView {
+        private final String firstName;
+
+        PersonView(String firstName) {
+            this.firstName = firstName;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package io.github.crudzilla.persistency;
+
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.CascadeStyle;
+import org.hibernate.engine.spi.CascadeStyles;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.Assigned;
+import org.hibernate.id.IdentityGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sample.domain.SampleEntity;
+import sample.domain.SampleEntityRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.groups.Default;
+import javax.validation.metadata.BeanDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class AbstractRepositoryJPATest {
+
+    private final Validator validator = mock(Validator.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final SampleEntityRepository repository = new SampleEntityRepository();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(repository, "validator", validator);
+        repository.entityManager = entityManager;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.unbindResourceIfPossible(
+                    ReflectionTestUtils.getField(AbstractRepositoryJPA.class, "VALIDATED_ENTITIES"));
+        }
+    }
+
+    @Test
+    void getByIds__returns_the_entities_in_the_order_of_the_ids() {
+        var query = mockQueries();
+        var first = createEntity(1, "First");
+        var second = createEntity(2, "Second");
+        when(query.getResultList()).thenReturn(List.of(second, first));
+
+        assertThat(repository.getByIds(List.of(1, 2, 1, 3)), contains(first, second));
+        verify(entityManager, times(1)).createQuery(anyString());
+    }
+
+    @Test
+    void getByIds__splits_the_ids_in_many_queries() {
+        var query = mockQueries();
+        when(query.getResultList()).thenReturn(List.of());
+
+        repository.getByIds(IntStream.range(0, 2500).boxed().collect(Collectors.toList()));
+
+        verify(entityManager, times(3)).createQuery(anyString());
+    }
+
+    @Test
+    void getByTerm__completes_the_prefix_matches_with_the_contains_matches() {
+        var query = mockQueries();
+        var prefixMatch = createEntity(1, "Root");
+        var containsMatch = createEntity(2, "Chroot");
+        when(query.getResultList()).thenReturn(List.of(prefixMatch), List.of(containsMatch));
+
+        assertThat(repository.getByTerm("ro"), contains(prefixMatch, containsMatch));
+        verify(query, times(2)).setParameter(anyInt(), eq("ro%"));
+        verify(query).setParameter(anyInt(), eq("%ro%"));
+        verify(query).setMaxResults(20);
+        verify(query).setMaxResults(19);
+    }
+
+    @Test
+    void getByTerm__does_not_search_by_contains_when_the_prefix_fills_the_limit() {
+        var query = mockQueries();
+        var entities = IntStream.range(0, 20).mapToObj(i -> createEntity(i, "Root " + i)).collect(Collectors.toList());
+        when(query.getResultList()).thenReturn(entities);
+
+        assertThat(repository.getByTerm("ro"), is(entities));
+        verify(entityManager, times(1)).createQuery(anyString());
+    }
+
+    @Test
+    void normalize__removes_accents_and_case() {
+        assertThat(AbstractRepositoryJPA.normalize("São JOSÉ"), is("sao jose"));
+    }
+
+    @Test
+    void put__validates_new_entities_with_the_create_group() {
+        var entity = new SampleEntity();
+
+        repository.put(entity);
+
+        verify(validator).validate(entity, Default.class, ValidationGroups.Create.class);
+        verify(entityManager).persist(entity);
+    }
+
+    @Test
+    void put__validates_existing_entities_with_the_update_group() {
+        var entity = new SampleEntity();
+        entity.setId(1);
+
+        repository.put(entity);
+
+        verify(validator).validate(entity, Default.class, ValidationGroups.Update.class);
+    }
+
+    @Test
+    void put__does_not_merge_managed_entities() {
+        var entity = new SampleEntity();
+        entity.setId(1);
+        when(entityManager.contains(entity)).thenReturn(true);
+
+        repository.put(entity);
+
+        verify(entityManager, never()).merge(entity);
+    }
+
+    @Test
+    void put__merges_managed_entities_with_merge_cascades() {
+        var entity = new SampleEntity();
+        entity.setId(1);
+        when(entityManager.contains(entity)).thenReturn(true);
+        var session = mock(SessionImplementor.class, RETURNS_DEEP_STUBS);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(session.getFactory().getMetamodel().entityPersister(SampleEntity.class).getPropertyCascadeStyles())
+                .thenReturn(new CascadeStyle[]{CascadeStyles.NONE, CascadeStyles.MERGE});
+
+        repository.put(entity);
+
+        verify(entityManager).merge(entity);
+    }
+
+    @Test
+    void put__merges_detached_entities() {
+        var entity = new SampleEntity();
+        entity.setId(1);
+
+        repository.put(entity);
+
+        verify(entityManager).merge(entity);
+    }
+
+    @Test
+    void put__inserts_entities_with_id_on_insert_mode() {
+        var entity = new SampleEntity();
+        entity.setId(1);
+
+        repository.put(entity, AbstractRepositoryJPA.PutMode.INSERT);
+
+        verify(entityManager).persist(entity);
+        verify(entityManager, never()).merge(entity);
+    }
+
+    @Test
+    void put__reattaches_the_entity_on_detached_update_mode() {
+        var entity = new SampleEntity();
+        entity.setId(1);
+        var session = mock(Session.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+
+        repository.put(entity, AbstractRepositoryJPA.PutMode.DETACHED_UPDATE);
+
+        verify(session).update(entity);
+        verify(entityManager, never()).merge(entity);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void put__throws_when_the_entity_is_invalid() {
+        var entity = new SampleEntity();
+        var violation = mock(ConstraintViolation.class);
+        when(violation.getMessage()).thenReturn("name is required");
+        when(validator.validate(entity, Default.class, ValidationGroups.Create.class)).thenReturn((Set) Set.of(violation));
+
+        var exception = assertThrows(InvalidEntityException.class, () -> repository.put(entity));
+
+        assertThat(exception.getMensagens(), contains("name is required"));
+        verify(entityManager, never()).persist(entity);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void getAllVersion__changes_when_a_row_is_replaced_by_another_with_the_same_version() {
+        var versionedRepository = new VersionedSampleEntityRepository();
+        versionedRepository.entityManager = entityManager;
+        var query = mockQueries();
+        EntityType entityType = entityManager.getMetamodel().entity(SampleEntity.class);
+        when(entityType.getSingularAttribute("version").getJavaType()).thenReturn(Long.class);
+        when(query.getSingleResult()).thenReturn(new Object[]{0L, 2L, 3L, 2}, (Object) new Object[]{0L, 2L, 4L, 3});
+
+        var before = versionedRepository.getAllVersion();
+        var after = versionedRepository.getAllVersion();
+
+        assertThat(before.equals(after), is(false));
+        var jpql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager, times(2)).createQuery(jpql.capture());
+        assertThat(jpql.getValue(), containsString("sum(e.id), max(e.id)"));
+    }
+
+    @Test
+    void toggleActive__loads_and_validates_the_entity_without_an_active_attribute() {
+        var query = mockQueries();
+        var entity = createEntity(1, "Renan");
+        when(entityManager.find(SampleEntity.class, 1)).thenReturn(entity);
+
+        repository.toggleActive(1, null);
+
+        verify(validator).validate(entity, ValidationGroups.Toggle.class);
+        verify(query, never()).executeUpdate();
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void toggleActive__throws_stale_entity_when_the_version_changed() {
+        var versionedRepository = new VersionedSampleEntityRepository();
+        versionedRepository.entityManager = entityManager;
+        var query = mockQueries();
+        EntityType entityType = entityManager.getMetamodel().entity(SampleEntity.class);
+        var activeAttribute = mock(SingularAttribute.class);
+        when(activeAttribute.getName()).thenReturn("active");
+        when(activeAttribute.getJavaType()).thenReturn(Boolean.class);
+        when(entityType.getSingularAttributes()).thenReturn(Set.of(activeAttribute));
+        when(entityType.getSingularAttribute("version").getJavaType()).thenReturn(Long.class);
+        when(query.executeUpdate()).thenReturn(0);
+        when(query.getSingleResult()).thenReturn(8L);
+
+        assertThrows(StaleEntityException.class, () -> versionedRepository.toggleActive(1, "7"));
+        var jpql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager, times(2)).createQuery(jpql.capture());
+        assertThat(jpql.getAllValues().get(0), containsString("e.version = ?"));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void getForUpdate__reads_the_associations_through_the_metamodel() throws Exception {
+        var entity = createEntity(1, "Renan");
+        when(entityManager.find(SampleEntity.class, 1)).thenReturn(entity);
+        var metamodel = mock(Metamodel.class, RETURNS_DEEP_STUBS);
+        when(entityManager.getMetamodel()).thenReturn(metamodel);
+        EntityType entityType = metamodel.entity(SampleEntity.class);
+        var attribute = mock(Attribute.class);
+        when(attribute.getJavaMember()).thenReturn(SampleEntity.class.getDeclaredField("name"));
+        when(entityType.getAttribute("name")).thenReturn(attribute);
+
+        assertThat(repository.getForUpdate(1, List.of("name")), is(entity));
+        verify(attribute).getJavaMember();
+    }
+
+    @Test
+    @SuppressWarnings("rawtypes")
+    void getForUpdate__refuses_unknown_associations() {
+        when(entityManager.find(SampleEntity.class, 1)).thenReturn(createEntity(1, "Renan"));
+        var metamodel = mock(Metamodel.class, RETURNS_DEEP_STUBS);
+        when(entityManager.getMetamodel()).thenReturn(metamodel);
+        EntityType entityType = metamodel.entity(SampleEntity.class);
+        when(entityType.getAttribute("children")).thenThrow(new IllegalArgumentException("Unable to locate attribute"));
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> repository.getForUpdate(1, List.of("children")));
+
+        assertThat(exception.getMessage(), containsString("children"));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Query mockQueries() {
+        var entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
+        var metamodel = mock(Metamodel.class, RETURNS_DEEP_STUBS);
+        when(entityManager.getMetamodel()).thenReturn(metamodel);
+        EntityType entityType = metamodel.entity(SampleEntity.class);
+        when(entityType.getIdType().getJavaType()).thenReturn(Integer.class);
+        when(entityType.getId(Integer.class).getName()).thenReturn("id");
+        var query = mock(Query.class);
+        when(entityManager.createQuery(anyString())).thenReturn(query);
+        return query;
+    }
+
+    private static SampleEntity createEntity(int id, String name) {
+        var entity = new SampleEntity();
+        entity.setId(id);
+        entity.setName(name);
+        return entity;
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void put__validates_the_whole_entity_when_a_cascaded_property_changes() {
+        var entity = createEntity(1, "Renan");
+        var session = mock(SessionImplementor.class, RETURNS_DEEP_STUBS);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        var entry = mock(EntityEntry.class);
+        when(session.getPersistenceContextInternal().getEntry(entity)).thenReturn(entry);
+        when(entry.getLoadedState()).thenReturn(new Object[]{"Renan", List.of()});
+        var persister = mock(EntityPersister.class);
+        when(entry.getPersister()).thenReturn(persister);
+        when(persister.getPropertyNames()).thenReturn(new String[]{"name", "children"});
+        var childrenType = mock(Type.class);
+        when(childrenType.isCollectionType()).thenReturn(true);
+        when(persister.getPropertyTypes()).thenReturn(new Type[]{StandardBasicTypes.STRING, childrenType});
+        var beanDescriptor = mock(BeanDescriptor.class);
+        when(validator.getConstraintsForClass(SampleEntity.class)).thenReturn(beanDescriptor);
+        var childrenDescriptor = mock(PropertyDescriptor.class);
+        when(childrenDescriptor.isCascaded()).thenReturn(true);
+        when(beanDescriptor.getConstraintsForProperty("children")).thenReturn(childrenDescriptor);
+        var violation = mock(ConstraintViolation.class);
+        when(violation.getMessage()).thenReturn("children[0].name is required");
+        when(validator.validate(entity, Default.class, ValidationGroups.Update.class)).thenReturn((Set) Set.of(violation));
+
+        var exception = assertThrows(InvalidEntityException.class, () -> repository.put(entity));
+
+        assertThat(exception.getMensagens(), contains("children[0].name is required"));
+        verify(validator, never()).validateProperty(entity, "children", Default.class, ValidationGroups.Update.class);
+    }
+
+    @Test
+    void put__does_not_validate_twice_in_the_same_transaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        var entity = new SampleEntity();
+
+        repository.put(entity);
+        repository.put(entity);
+
+        verify(validator, times(1)).validate(entity, Default.class, ValidationGroups.Create.class);
+    }
+
+    @Test
+    void put__validates_again_an_entity_changed_after_its_validation() {
+        TransactionSynchronizationManager.initSynchronization();
+        var entity = new SampleEntity();
+        entity.setName("Renan");
+
+        repository.put(entity);
+        entity.setName("");
+        repository.put(entity);
+
+        verify(validator, times(2)).validate(entity, Default.class, ValidationGroups.Create.class);
+    }
+
+    @Test
+    void upsert__increments_the_version_and_keeps_the_columns_not_updatable() {
+        var session = mock(SessionImplementor.class, RETURNS_DEEP_STUBS);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(entityManager.getEntityManagerFactory()).thenReturn(mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS));
+        var dialect = mock(Dialect.class, withSettings().extraInterfaces(UpsertDialect.class));
+        when(session.getJdbcServices().getDialect()).thenReturn(dialect);
+        var persister = mock(AbstractEntityPersister.class);
+        when(session.getFactory().getMetamodel().entityPersister(SampleEntity.class)).thenReturn(persister);
+        when(persister.getPropertyTypes()).thenReturn(new Type[]{StandardBasicTypes.STRING, StandardBasicTypes.TIMESTAMP, StandardBasicTypes.LONG});
+        when(persister.getPropertyColumnNames(0)).thenReturn(new String[]{"name"});
+        when(persister.getPropertyColumnNames(1)).thenReturn(new String[]{"created_at"});
+        when(persister.getPropertyColumnNames(2)).thenReturn(new String[]{"version"});
+        when(persister.getPropertyInsertability()).thenReturn(new boolean[]{true, true, true});
+        when(persister.getPropertyUpdateability()).thenReturn(new boolean[]{true, false, true});
+        when(persister.isVersioned()).thenReturn(true);
+        when(persister.getVersionProperty()).thenReturn(2);
+        when(persister.getIdentifierColumnNames()).thenReturn(new String[]{"id"});
+        when(persister.getTableName()).thenReturn("sample");
+        when(persister.getIdentifierGenerator()).thenReturn(new Assigned());
+        var entity = createEntity(1, "Renan");
+
+        repository.upsert(List.of(entity));
+
+        verify((UpsertDialect) dialect).getUpsertString("sample", List.of("id"), List.of("name", "created_at", "version"),
+                List.of("name"), "version");
+        verify(validator).validate(entity, Default.class, ValidationGroups.Create.class, ValidationGroups.Update.class);
+    }
+
+    @Test
+    void upsert__refuses_entities_with_generated_ids() {
+        var session = mock(SessionImplementor.class, RETURNS_DEEP_STUBS);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        var dialect = mock(Dialect.class, withSettings().extraInterfaces(UpsertDialect.class));
+        when(session.getJdbcServices().getDialect()).thenReturn(dialect);
+        var persister = mock(AbstractEntityPersister.class);
+        when(session.getFactory().getMetamodel().entityPersister(SampleEntity.class)).thenReturn(persister);
+        when(persister.getIdentifierGenerator()).thenReturn(new IdentityGenerator());
+        var entity = createEntity(1, "Renan");
+
+        assertThrows(UnsupportedOperationException.class, () -> repository.upsert(List.of(entity)));
+        verify(session, never()).doWork(any());
+    }
+
+    static class VersionedSampleEntityRepository extends RepositoryJpa<SampleEntity, Integer> {
+        @Override
+        protected String getVersionAttribute() {
+            return "version";
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.crudzilla.persistency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CRUDZillaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final CRUDZillaRoutingDataSource dataSource = new CRUDZillaRoutingDataSource(primary, replica);
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void getConnection__uses_the_primary_outside_read_only_transactions() throws Exception {
+        var connection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(connection);
+
+        assertSame(connection, dataSource.getConnection());
+    }
+
+    @Test
+    void getConnection__uses_the_replica_on_read_only_transactions() throws Exception {
+        var connection = mock(Connection.class);
+        when(replica.getConnection()).thenReturn(connection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(connection, dataSource.getConnection());
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.crudzilla.persistency;
+
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLServer2008Templates;
+import com.querydsl.sql.SQLServer2012Templates;
+import io.github.crudzilla.persistency.SQLTemplatesFactory.Banco;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SQLTemplatesFactoryTest {
+
+    @Test
+    void build__shares_the_templates() {
+        assertThat(SQLTemplatesFactory.build(Banco.ORACLE), sameInstance(SQLTemplatesFactory.build(Banco.ORACLE)));
+    }
+
+    @Test
+    void build__picks_the_templates_from_the_connection() throws SQLException {
+        var dataSource = mock(DataSource.class);
+        var connection = mock(Connection.class);
+        var metaData = metaData("Microsoft SQL Server", 15);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+
+        assertThat(SQLTemplatesFactory.build(dataSource), instanceOf(SQLServer2012Templates.class));
+    }
+
+    @Test
+    void getBanco__reads_product_and_version() throws SQLException {
+        assertThat(SQLTemplatesFactory.getBanco(metaData("Microsoft SQL Server", 10)), is(Banco.SQLSERVER_2008));
+        assertThat(SQLTemplatesFactory.getBanco(metaData("MariaDB", 10)), is(Banco.MYSQL));
+        assertThat(SQLTemplatesFactory.getBanco(metaData("PostgreSQL", 14)), is(Banco.POSTGRESQL));
+        assertThrows(IllegalArgumentException.class, () -> SQLTemplatesFactory.getBanco(metaData("Derby", 10)));
+    }
+
+    @Test
+    void getBanco__finds_the_database_of_the_templates() {
+        assertThat(SQLTemplatesFactory.getBanco(SQLServer2008Templates.DEFAULT), is(Optional.of(Banco.SQLSERVER_2008)));
+        assertThat(SQLTemplatesFactory.getBanco(H2Templates.DEFAULT), is(Optional.of(Banco.H2)));
+        assertThat(SQLTemplatesFactory.getBanco(SQLTemplatesFactory.build(Banco.POSTGRESQL)), is(Optional.of(Banco.POSTGRESQL)));
+    }
+
+    private static DatabaseMetaData metaData(String product, int majorVersion) throws SQLException {
+        var metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn(product);
+        when(metaData.getDatabaseMajorVersion()).thenReturn(majorVersion);
+        return metaData;
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.crudzilla.persistency;
+
+import io.github.crudzilla.persistency.h2.CRUDZillaH2Dialect;
+import io.github.crudzilla.persistency.sqlserver.SQLServerDialect;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UpsertDialectTest {
+
+    @Test
+    void h2__uses_merge_with_key() {
+        var sql = new CRUDZillaH2Dialect().getUpsertString("public.sample", List.of("id"), List.of("name", "active"));
+
+        assertThat(sql, is("merge into public.sample (id, name, active) key (id) values (?, ?, ?)"));
+    }
+
+    @Test
+    void sqlServer__uses_merge_with_the_values_as_source() {
+        var sql = new SQLServerDialect().getUpsertString("dbo.sample", List.of("id"), List.of("name"));
+
+        assertThat(sql, is("merge into dbo.sample with (holdlock) as t"
+                + " using (values (?, ?)) as s (id, name)"
+                + " on t.id = s.id"
+                + " when matched then update set t.name = s.name"
+                + " when not matched then insert (id, name) values (s.id, s.name);"));
+    }
+
+    @Test
+    void sqlServer__only_inserts_when_there_are_only_keys() {
+        var sql = new SQLServerDialect().getUpsertString("dbo.sample_role", List.of("sample_id", "role_id"), List.of());
+
+        assertThat(sql, is("merge into dbo.sample_role with (holdlock) as t"
+                + " using (values (?, ?)) as s (sample_id, role_id)"
+                + " on t.sample_id = s.sample_id and t.role_id = s.role_id"
+                + " when not matched then insert (sample_id, role_id) values (s.sample_id, s.role_id);"));
+    }
+
+    @Test
+    void sqlServer__increments_the_version_and_keeps_the_columns_not_updatable() {
+        var sql = new SQLServerDialect().getUpsertString("dbo.sample", List.of("id"),
+                List.of("name", "created_at", "version"), List.of("name"), "version");
+
+        assertThat(sql, is("merge into dbo.sample with (holdlock) as t"
+                + " using (values (?, ?, ?, ?)) as s (id, name, created_at, version)"
+                + " on t.id = s.id"
+                + " when matched then update set t.name = s.name, t.version = t.version + 1"
+                + " when not matched then insert (id, name, created_at, version) values (s.id, s.name, s.created_at, s.version);"));
+    }
+
+    @Test
+    void h2__uses_merge_with_the_values_as_source_when_some_columns_are_not_updated() {
+        var sql = new CRUDZillaH2Dialect().getUpsertString("public.sample", List.of("id"),
+                List.of("name", "version"), List.of("name"), "version");
+
+        assertThat(sql, is("merge into public.sample as t"
+                + " using (values (?, ?, ?)) as s (id, name, version)"
+                + " on t.id = s.id"
+                + " when matched then update set t.name = s.name, t.version = t.version + 1"
+                + " when not matched then insert (id, name, version) values (s.id, s.name, s.version)"));
+    }
+
+    @Test
+    void default__refuses_versioned_entities() {
+        UpsertDialect dialect = (table, keyColumns, columns) -> "upsert";
+
+        assertThat(dialect.getUpsertString("sample", List.of("id"), List.of("name"), List.of("name"), null), is("upsert"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> dialect.getUpsertString("sample", List.of("id"), List.of("name", "version"), List.of("name"), "version"));
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.crudzilla.persistency.sqlserver;
+
+import org.hibernate.engine.spi.RowSelection;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class SQLServerLimitHandlerTest {
+
+    private final SQLServerLimitHandler limitHandler = new SQLServerLimitHandler();
+
+    @Test
+    void processSql__uses_top_on_the_first_page() throws SQLException {
+        var selection = selection(null, 10);
+
+        var sql = limitHandler.processSql("select distinct a.id from a where a.name = ?", selection);
+
+        assertThat(sql, is("select distinct top (?) a.id from a where a.name = ?"));
+        var statement = mock(PreparedStatement.class);
+        assertThat(limitHandler.bindLimitParametersAtStartOfQuery(selection, statement, 1), is(1));
+        assertThat(limitHandler.bindLimitParametersAtEndOfQuery(selection, statement, 3), is(0));
+        verify(statement).setInt(1, 10);
+    }
+
+    @Test
+    void processSql__uses_offset_on_the_next_pages() throws SQLException {
+        var selection = selection(20, 10);
+
+        var sql = limitHandler.processSql("SELECT a.id\nFROM a\nORDER BY\na.name", selection);
+
+        assertThat(sql, is("SELECT a.id\nFROM a\nORDER BY\na.name offset ? rows fetch next ? rows only"));
+        var statement = mock(PreparedStatement.class);
+        assertThat(limitHandler.bindLimitParametersAtStartOfQuery(selection, statement, 1), is(0));
+        assertThat(limitHandler.bindLimitParametersAtEndOfQuery(selection, statement, 1), is(2));
+        verify(statement).setInt(1, 20);
+        verify(statement).setInt(2, 10);
+    }
+
+    @Test
+    void processSql__ignores_order_by_of_subqueries_strings_and_comments() {
+        var sql = limitHandler.processSql("select a.id /* order by */ from (select top 5 b.id from b order by b.id) a"
+                + " where a.name <> 'order by'", selection(20, 10));
+
+        assertThat(sql, is("select a.id /* order by */ from (select top 5 b.id from b order by b.id) a"
+                + " where a.name <> 'order by' order by (select null) offset ? rows fetch next ? rows only"));
+    }
+
+    @Test
+    void processSql__pages_before_the_option_clause() {
+        var sql = limitHandler.processSql("select a.id from a order by a.id option (recompile);", selection(20, 10));
+
+        assertThat(sql, is("select a.id from a order by a.id offset ? rows fetch next ? rows only option (recompile);"));
+    }
+
+    @Test
+    void processSql__uses_offset_on_unions_and_ctes() {
+        assertThat(limitHandler.processSql("select a.id from a union select b.id from b", selection(0, 10)),
+                is("select a.id from a union select b.id from b order by (select null) offset ? rows fetch next ? rows only"));
+        assertThat(limitHandler.processSql("with c as (select a.id from a) select c.id from c", selection(0, 10)),
+                is("with c as (select a.id from a) select c.id from c order by (select null) offset ? rows fetch next ? rows only"));
+    }
+
+    @Test
+    void processSql__keeps_the_sql_without_limit() {
+        assertThat(limitHandler.processSql("select a.id from a", new RowSelection()), is("select a.id from a"));
+    }
+
+    private static RowSelection selection(Integer firstRow, Integer maxRows) {
+        var selection = new RowSelection();
+        selection.setFirstRow(firstRow);
+        selection.setMaxRows(maxRows);
+        return selection;
+    }
+}
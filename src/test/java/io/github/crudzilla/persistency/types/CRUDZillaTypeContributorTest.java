@@ -0,0 +1,80 @@
+package io.github.crudzilla.persistency.types;
+
+import org.hibernate.boot.model.TypeContributions;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItemInArray;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CRUDZillaTypeContributorTest {
+
+    private final WrapperOptions options = mock(WrapperOptions.class);
+
+    @Test
+    void contribute__registers_the_types() {
+        var typeContributions = mock(TypeContributions.class);
+
+        new CRUDZillaTypeContributor().contribute(typeContributions, mock(ServiceRegistry.class));
+
+        verify(typeContributions).contributeType(CRUDZillaIntBooleanType.INSTANCE);
+        verify(typeContributions).contributeType(CRUDZillaLocalDateType.INSTANCE);
+        verify(typeContributions).contributeType(CRUDZillaLocalDateTimeType.INSTANCE);
+        assertThat(CRUDZillaIntBooleanType.INSTANCE.getRegistrationKeys(), hasItemInArray(Boolean.class.getName()));
+        assertThat(CRUDZillaLocalDateType.INSTANCE.getRegistrationKeys(), hasItemInArray(LocalDate.class.getName()));
+    }
+
+    @Test
+    void localDate__is_read_and_bound_without_java_sql_date() throws SQLException {
+        var type = CRUDZillaLocalDateType.INSTANCE;
+        var resultSet = mock(ResultSet.class);
+        var date = LocalDate.of(2022, 3, 15);
+        when(resultSet.getObject("birth", LocalDate.class)).thenReturn(date);
+        var statement = mock(PreparedStatement.class);
+
+        var value = type.getSqlTypeDescriptor().getExtractor(type.getJavaTypeDescriptor()).extract(resultSet, "birth", options);
+        type.getSqlTypeDescriptor().getBinder(type.getJavaTypeDescriptor()).bind(statement, date, 1, options);
+
+        assertThat(value, sameInstance(date));
+        verify(resultSet, never()).getDate(anyString());
+        verify(statement).setObject(1, date);
+    }
+
+    @Test
+    void localDateTime__is_read_without_timestamp() throws SQLException {
+        var type = CRUDZillaLocalDateTimeType.INSTANCE;
+        var resultSet = mock(ResultSet.class);
+        var dateTime = LocalDateTime.of(2022, 3, 15, 10, 30);
+        when(resultSet.getObject("created", LocalDateTime.class)).thenReturn(dateTime);
+
+        var value = type.getSqlTypeDescriptor().getExtractor(type.getJavaTypeDescriptor()).extract(resultSet, "created", options);
+
+        assertThat(value, sameInstance(dateTime));
+        verify(resultSet, never()).getTimestamp(anyString());
+    }
+
+    @Test
+    void intBoolean__reads_the_int() throws SQLException {
+        var type = CRUDZillaIntBooleanType.INSTANCE;
+        var resultSet = mock(ResultSet.class);
+        when(resultSet.getInt("active")).thenReturn(1);
+
+        var value = type.getSqlTypeDescriptor().getExtractor(type.getJavaTypeDescriptor()).extract(resultSet, "active", options);
+
+        assertThat(value, is(Boolean.TRUE));
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.crudzilla.querybuilder;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.Expressions;
+import org.junit.jupiter.api.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnarQueryResultTest {
+
+    record Row(Integer id, String name, BigDecimal total, Boolean active) { }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void of__stores_values_by_column_with_null_bitmaps() throws Exception {
+        var result = ColumnarQueryResult.of(new QueryResult<>(List.of(
+                new Row(1, "Renan", null, true),
+                new Row(2, null, null, false),
+                new Row(3, "Val", null, null)
+        ), 30L), mapper);
+
+        JSONAssert.assertEquals("""
+                {
+                  "rows": 3,
+                  "count": 30,
+                  "columns": ["id", "name", "total", "active"],
+                  "values": [[1, 2, 3], ["Renan", null, "Val"], null, [true, false, false]],
+                  "nulls": [null, [2], null, [4]]
+                }
+                """, mapper.writeValueAsString(result), true);
+    }
+
+    @Test
+    void of__reads_bean_properties() {
+        var row = new BeanRow();
+        row.setId(10L);
+        row.setName("Renan");
+
+        var result = ColumnarQueryResult.of(new QueryResult<>(List.of(row), 1L), mapper);
+
+        assertThat(result.getColumns(), contains("id", "name"));
+        assertThat(((long[]) result.getValues().get(0))[0], is(10L));
+        assertThat(result.getNulls().get(0), is(nullValue()));
+    }
+
+    @Test
+    void of__names_the_columns_as_the_mapper() {
+        var row = new AnnotatedRow();
+        row.setId(10L);
+        row.setName("Renan");
+        row.setPassword("secret");
+
+        var result = ColumnarQueryResult.of(new QueryResult<>(List.of(row), 1L), mapper);
+
+        assertThat(result.getColumns(), contains("id", "fullName"));
+        assertThat(((Object[]) result.getValues().get(1))[0], is("Renan"));
+    }
+
+    @Test
+    void of__reads_tuple_rows_by_the_projection_args() throws Exception {
+        var id = Expressions.numberPath(Integer.class, "id");
+        var name = Expressions.stringPath("name");
+        var projection = Projections.tuple(id, name.as("label"));
+
+        var result = ColumnarQueryResult.of(new QueryResult<>(List.of(
+                projection.newInstance(1, "Renan"),
+                projection.newInstance(2, null)
+        ), 2L), projection, mapper);
+
+        JSONAssert.assertEquals("""
+                {
+                  "rows": 2,
+                  "count": 2,
+                  "columns": ["id", "label"],
+                  "values": [[1, 2], ["Renan", null]],
+                  "nulls": [null, [2]]
+                }
+                """, mapper.writeValueAsString(result), true);
+    }
+
+    @Test
+    void of__reads_array_rows_by_the_projection_args() {
+        var projection = Projections.tuple(Expressions.numberPath(Long.class, "total"), Expressions.stringPath("name"));
+
+        var result = ColumnarQueryResult.of(new QueryResult<>(List.<Object[]>of(
+                new Object[]{7L, "Renan"}
+        ), 1L), projection, mapper);
+
+        assertThat(result.getColumns(), contains("total", "name"));
+        assertThat(((long[]) result.getValues().get(0))[0], is(7L));
+    }
+
+    @Test
+    void of__converts_the_numbers_brought_by_the_database() {
+        var projection = Projections.tuple(Expressions.numberPath(Integer.class, "id"),
+                Expressions.numberPath(Long.class, "total"), Expressions.booleanPath("active"));
+
+        var result = ColumnarQueryResult.of(new QueryResult<>(List.<Object[]>of(
+                new Object[]{BigDecimal.ONE, BigInteger.TEN, (short) 1},
+                new Object[]{2L, 20, (short) 0}
+        ), 2L), projection, mapper);
+
+        assertThat((int[]) result.getValues().get(0), is(new int[]{1, 2}));
+        assertThat((long[]) result.getValues().get(1), is(new long[]{10, 20}));
+        assertThat((boolean[]) result.getValues().get(2), is(new boolean[]{true, false}));
+    }
+
+    @Test
+    void of__refuses_tuple_rows_without_the_projection() {
+        var projection = Projections.tuple(Expressions.numberPath(Integer.class, "id"));
+        var queryResult = new QueryResult<>(List.of(projection.newInstance(1)), 1L);
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarQueryResult.of(queryResult, mapper));
+    }
+
+    @Test
+    void of__handles_empty_results() throws Exception {
+        var result = ColumnarQueryResult.of(new QueryResult<>(List.of(), 0L), mapper);
+
+        JSONAssert.assertEquals("""
+                { "rows": 0, "count": 0, "columns": [], "values": [], "nulls": [] }
+                """, mapper.writeValueAsString(result), true);
+    }
+
+    public static class AnnotatedRow extends BeanRow {
+        private String password;
+
+        @Override
+        @JsonProperty("fullName")
+        public String getName() {
+            return super.getName();
+        }
+
+        @JsonIgnore
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    public static class BeanRow {
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.dsl.Expressions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DynamicProjectionTest {
+
+    private final List<String> selectedColumns = List.of("name", "total");
+
+    @Test
+    void build__only_contains_the_selected_columns() {
+        var projection = new DynamicProjection<>(Row.class, selectedColumns)
+                .add("id", Expressions.numberPath(Integer.class, "id"))
+                .addIfColumnSelected("name", "name", Expressions.stringPath("nome"))
+                .addIfColumnSelected("email", "email", Expressions.stringPath("email"))
+                .addIfAnyColumnSelected(List.of("total", "average"), "total", Expressions.numberPath(Long.class, "total"))
+                .build();
+
+        assertThat(projection.getArgs(), contains(
+                hasToString("id as id"),
+                hasToString("nome as name"),
+                hasToString("total as total")
+        ));
+    }
+
+    @Test
+    void build__throws_when_no_column_is_selected() {
+        var projection = new DynamicProjection<>(Row.class, List.of())
+                .addIfColumnSelected("name", "name", Expressions.stringPath("nome"));
+
+        assertThrows(IllegalStateException.class, projection::build);
+    }
+
+    public static class Row {
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLSerializer;
+import com.querydsl.sql.SQLServer2008Templates;
+import com.querydsl.sql.SQLServer2012Templates;
+import com.querydsl.sql.SQLTemplates;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InClausesTest {
+
+    private static final NumberPath<Integer> id = Expressions.numberPath(Integer.class, "id");
+    private static final StringPath name = Expressions.stringPath("name");
+
+    @Test
+    void pad__repeats_the_last_value_up_to_the_next_power_of_two() {
+        assertThat(InClauses.pad(List.of(1, 2, 3)), contains(1, 2, 3, 3));
+        assertThat(InClauses.pad(List.of(1, 2, 3, 4)), contains(1, 2, 3, 4));
+        assertThat(InClauses.pad(List.of(1)), contains(1));
+    }
+
+    @Test
+    void partition__splits_in_padded_chunks() {
+        var chunks = InClauses.partition(range(2500));
+
+        assertThat(chunks.stream().map(List::size).collect(Collectors.toList()), contains(1024, 1024, 512));
+    }
+
+    @Test
+    void in__shares_the_sql_of_lists_of_similar_lengths() {
+        assertThat(render(H2Templates.DEFAULT, range(5)), is(render(H2Templates.DEFAULT, range(7))));
+        assertThat(render(H2Templates.DEFAULT, range(5)), not(render(H2Templates.DEFAULT, range(9))));
+    }
+
+    @Test
+    void in__joins_the_chunks_of_long_lists() {
+        assertThat(render(H2Templates.DEFAULT, range(1500)), containsString(" or "));
+    }
+
+    @Test
+    void in__uses_string_split_for_long_lists_on_sql_server() {
+        var sql = render(SQLServer2012Templates.DEFAULT, range(1500));
+
+        assertThat(sql, is("id in (select value from string_split(?, ','))"));
+    }
+
+    @Test
+    void in__keeps_the_padded_lists_below_the_parameter_limit() {
+        assertThat(countParameters(SQLServer2008Templates.DEFAULT, range(1990)), is(InClauses.MAX_PARAMETERS));
+        assertThat(countParameters(SQLServer2008Templates.DEFAULT, range(1500)), is(1536));
+        assertThat(countParameters(SQLServer2012Templates.DEFAULT, range(2090)), is(1));
+    }
+
+    @Test
+    void in__refuses_lists_over_the_parameter_limit_on_sql_server() {
+        var values = range(2090).stream().map(String::valueOf).collect(Collectors.toList());
+
+        assertThrows(IllegalArgumentException.class, () -> InClauses.in(SQLServer2012Templates.DEFAULT, name, values));
+        assertThrows(IllegalArgumentException.class, () -> InClauses.in(id, range(2090)));
+    }
+
+    @Test
+    void in__allows_long_lists_on_other_databases() {
+        assertThat(countParameters(H2Templates.DEFAULT, range(2090)), is(2112));
+    }
+
+    private static int countParameters(SQLTemplates templates, List<Integer> values) {
+        var serializer = new SQLSerializer(new Configuration(templates));
+        serializer.handle(InClauses.in(templates, id, values));
+        return serializer.getConstants().size();
+    }
+
+    private static String render(SQLTemplates templates, List<Integer> values) {
+        var serializer = new SQLSerializer(new Configuration(templates));
+        serializer.handle(InClauses.in(templates, id, values));
+        return serializer.toString();
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+}
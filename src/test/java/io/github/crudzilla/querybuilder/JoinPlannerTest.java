@@ -0,0 +1,111 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.types.PathMetadataFactory;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.DefaultQueryHandler;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.RelationalPathBase;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.mockito.Mockito.mock;
+
+class JoinPlannerTest {
+
+    private static final Table user = new Table("user");
+    private static final Table role = new Table("role");
+    private static final Table roleGroup = new Table("role_group");
+    private static final Table userRole = new Table("user_role");
+
+    @Test
+    void apply__adds_only_the_referenced_joins() {
+        var query = newQuery();
+        query.select(user.id, role.name).from(user);
+
+        new JoinPlanner(query)
+                .innerJoin(role, role.id.eq(user.foreignId))
+                .leftJoin(userRole, userRole.id.eq(user.id))
+                .apply();
+
+        assertThat(joinedTables(query), contains("user", "role"));
+    }
+
+    @Test
+    void apply__adds_joins_needed_only_by_other_joins() {
+        var query = newQuery();
+        query.select(user.id, roleGroup.name).from(user);
+
+        new JoinPlanner(query)
+                .innerJoin(role, role.id.eq(user.foreignId))
+                .innerJoin(roleGroup, roleGroup.id.eq(role.foreignId))
+                .apply();
+
+        assertThat(joinedTables(query), contains("user", "role", "role_group"));
+    }
+
+    @Test
+    void apply__does_not_match_table_names_by_substring() {
+        var query = newQuery();
+        query.select(userRole.id).from(userRole);
+
+        new JoinPlanner(query)
+                .innerJoin(user, user.id.eq(userRole.foreignId))
+                .apply();
+
+        assertThat(joinedTables(query), contains("user_role"));
+    }
+
+    @Test
+    void apply__considers_filters() {
+        var query = newQuery();
+        query.select(user.id).from(user).where(role.name.eq("ADMIN"));
+
+        new JoinPlanner(query)
+                .innerJoin(role, role.id.eq(user.foreignId))
+                .apply();
+
+        assertThat(joinedTables(query), contains("user", "role"));
+    }
+
+    @Test
+    void apply__without_candidates_does_nothing() {
+        var query = newQuery();
+        query.select(user.id).from(user);
+
+        new JoinPlanner(query).apply();
+
+        assertThat(query.getMetadata().getJoins().stream().skip(1).collect(Collectors.toList()), empty());
+    }
+
+    private JPASQLQuery<?> newQuery() {
+        return new JPASQLQuery<>(mock(EntityManager.class), new Configuration(H2Templates.DEFAULT), DefaultQueryHandler.DEFAULT);
+    }
+
+    private static List<String> joinedTables(JPASQLQuery<?> query) {
+        return query.getMetadata().getJoins().stream()
+                .map(JoinExpression::getTarget)
+                .map(target -> ((RelationalPathBase<?>) target).getTableName())
+                .collect(Collectors.toList());
+    }
+
+    private static final class Table extends RelationalPathBase<Object> {
+        final NumberPath<Integer> id = Expressions.numberPath(Integer.class, PathMetadataFactory.forProperty(this, "id"));
+        final NumberPath<Integer> foreignId = Expressions.numberPath(Integer.class, PathMetadataFactory.forProperty(this, "foreign_id"));
+        final StringPath name = Expressions.stringPath(PathMetadataFactory.forProperty(this, "name"));
+
+        Table(String name) {
+            super(Object.class, name, "public", name);
+        }
+    }
+}
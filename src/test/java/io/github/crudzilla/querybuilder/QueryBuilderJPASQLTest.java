@@ -0,0 +1,92 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.DefaultQueryHandler;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLiteTemplates;
+import io.github.crudzilla.CRUDZillaInvalidPageSize;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class QueryBuilderJPASQLTest {
+
+    private final SampleQueryBuilder queryBuilder = new SampleQueryBuilder();
+    private final JPASQLQuery<Object> query = new JPASQLQuery<>(mock(EntityManager.class),
+            new Configuration(H2Templates.DEFAULT), DefaultQueryHandler.DEFAULT);
+
+    @Test
+    void addPaging__limits_the_page_to_the_max_page_size() {
+        var filter = new SampleFilter();
+        filter.setPageSize(5000);
+
+        queryBuilder.addPaging(filter, query);
+
+        assertThat(query.getMetadata().getModifiers().getLimit(), is((long) CRUDZillaFilter.DEFAULT_MAX_PAGE_SIZE));
+    }
+
+    @Test
+    void addPaging__allows_the_max_page_size_set_by_the_server() {
+        var filter = new SampleFilter();
+        filter.setPageSize(5000);
+        filter.setMaxPageSize(2000);
+
+        queryBuilder.addPaging(filter, query);
+
+        assertThat(query.getMetadata().getModifiers().getLimit(), is(2000L));
+    }
+
+    @Test
+    void addPaging__refuses_negative_page_sizes() {
+        var filter = new SampleFilter();
+        filter.setPageSize(-1);
+
+        assertThrows(CRUDZillaInvalidPageSize.class, () -> queryBuilder.addPaging(filter, query));
+    }
+
+    @Test
+    void filterIfNotEmpty__accepts_long_lists_outside_sql_server() {
+        queryBuilder.sqlTemplate = H2Templates.DEFAULT;
+        var ids = IntStream.range(0, 2500).boxed().collect(Collectors.toList());
+
+        queryBuilder.filterIfNotEmpty(query, ids, Expressions.numberPath(Integer.class, "id"));
+
+        assertThat(query.getMetadata().getWhere(), is(notNullValue()));
+    }
+
+    @Test
+    void useWindowCount__follows_the_database() {
+        queryBuilder.sqlTemplate = H2Templates.DEFAULT;
+        assertThat(queryBuilder.useWindowCount(), is(true));
+
+        queryBuilder.sqlTemplate = SQLiteTemplates.DEFAULT;
+        assertThat(queryBuilder.useWindowCount(), is(false));
+    }
+
+    private static final class SampleFilter extends CRUDZillaFilter {
+    }
+
+    private static final class SampleQueryBuilder extends QueryBuilderJPASQL<SampleFilter, Object> {
+
+        @Override
+        public Expression<? extends Comparable> getOrderByExpression(String column) {
+            return null;
+        }
+
+        @Override
+        public JPASQLQuery<Object> createQuery(SampleFilter filter) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.PathMetadataFactory;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.DefaultQueryHandler;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.RelationalPathBase;
+import com.querydsl.sql.SQLExpressions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryShapeCacheTest {
+
+    private static final Table user = new Table("user");
+    private static final Table role = new Table("role");
+
+    private EntityManager entityManager;
+    private Query nativeQuery;
+    private QueryShapeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(mock(EntityManagerFactory.class));
+        nativeQuery = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(nativeQuery);
+        cache = new QueryShapeCache(10);
+    }
+
+    @Test
+    void fetch__renders_each_shape_once() {
+        when(nativeQuery.getResultList()).thenReturn(Collections.singletonList(new Object[]{1, "root"}));
+
+        var first = cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id, user.name).from(user).where(user.name.eq("root")).limit(10).offset(0));
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id, user.name).from(user).where(user.name.eq("admin")).limit(10).offset(20));
+
+        assertThat(cache.size(), is(1));
+        var sql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager, times(2)).createNativeQuery(sql.capture());
+        assertThat(sql.getAllValues().get(0), is(sql.getAllValues().get(1)));
+        assertThat(sql.getValue(), not(containsString("limit")));
+        verify(nativeQuery).setParameter(1, "root");
+        verify(nativeQuery).setParameter(1, "admin");
+        verify(nativeQuery).setFirstResult(20);
+        verify(nativeQuery, times(2)).setMaxResults(10);
+        assertThat(first.get(0).get(user.id), is(1));
+        assertThat(first.get(0).get(user.name), is("root"));
+    }
+
+    @Test
+    void fetch__keeps_a_shape_for_each_set_of_filters() {
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id).from(user).where(user.name.eq("root")));
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id).from(user).where(user.name.eq("root"), user.id.in(1, 2)));
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id).from(user).where(user.name.eq("root"), user.id.in(1, 2, 3)));
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id).from(user).innerJoin(role).on(role.id.eq(user.foreignId))
+                        .where(user.name.eq("root")));
+
+        assertThat(cache.size(), is(4));
+    }
+
+    @Test
+    void fetch__drops_the_least_recently_used_shape_when_full() {
+        cache = new QueryShapeCache(2);
+        cache.fetch(entityManager, H2Templates.DEFAULT, newQuery().select(user.id).from(user));
+        cache.fetch(entityManager, H2Templates.DEFAULT, newQuery().select(user.name).from(user));
+        cache.fetch(entityManager, H2Templates.DEFAULT, newQuery().select(user.id).from(user));
+        cache.fetch(entityManager, H2Templates.DEFAULT, newQuery().select(user.foreignId).from(user));
+
+        assertThat(cache.size(), is(2));
+        var recent = spy(newQuery().select(user.id).from(user));
+        cache.fetch(entityManager, H2Templates.DEFAULT, recent);
+        var newest = spy(newQuery().select(user.foreignId).from(user));
+        cache.fetch(entityManager, H2Templates.DEFAULT, newest);
+        verify(recent, never()).getSQL();
+        verify(newest, never()).getSQL();
+    }
+
+    @Test
+    void fetch__binds_the_values_converted_by_the_templates() {
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id).from(user).where(user.name.startsWith("ro")));
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id).from(user).where(user.name.startsWith("ad")));
+
+        assertThat(cache.size(), is(1));
+        verify(nativeQuery).setParameter(1, "ro%");
+        verify(nativeQuery).setParameter(1, "ad%");
+    }
+
+    @Test
+    void fetch__does_not_cache_shapes_with_repeated_values() {
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id).from(user).where(user.name.eq("root").or(role.name.eq("root"))));
+
+        assertThat(cache.size(), is(0));
+        verify(nativeQuery).setParameter(1, "root");
+        verify(nativeQuery).setParameter(2, "root");
+    }
+
+    @Test
+    void fetch__does_not_cache_paged_subqueries() {
+        var firstRole = SQLExpressions.select(role.id).from(role).where(role.name.eq("root")).limit(1);
+        cache.fetch(entityManager, H2Templates.DEFAULT,
+                newQuery().select(user.id).from(user).where(user.foreignId.in(firstRole)));
+
+        assertThat(cache.size(), is(0));
+    }
+
+    private JPASQLQuery<?> newQuery() {
+        return new JPASQLQuery<>(entityManager, new Configuration(H2Templates.DEFAULT), DefaultQueryHandler.DEFAULT);
+    }
+
+    private static final class Table extends RelationalPathBase<Object> {
+        final NumberPath<Integer> id = Expressions.numberPath(Integer.class, PathMetadataFactory.forProperty(this, "id"));
+        final NumberPath<Integer> foreignId = Expressions.numberPath(Integer.class, PathMetadataFactory.forProperty(this, "foreign_id"));
+        final StringPath name = Expressions.stringPath(PathMetadataFactory.forProperty(this, "name"));
+
+        Table(String name) {
+            super(Object.class, name, "public", name);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import io.github.crudzilla.CRUDZillaInvalidSort;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SortMappingsTest {
+
+    private static final NumberPath<Long> id = Expressions.numberPath(Long.class, "id");
+    private static final StringPath name = Expressions.stringPath("name");
+    private static final StringPath email = Expressions.stringPath("email");
+
+    private final SortMappings sortMappings = new SortMappings(id)
+            .indexed("id", id)
+            .indexed("name", name)
+            .unindexed("email", email);
+
+    @Test
+    void getExpression__answers_the_mapped_expression() {
+        assertThat(sortMappings.getExpression("name"), is(name));
+        assertThat(sortMappings.getExpression(""), is(id));
+        assertThrows(CRUDZillaInvalidSort.class, () -> sortMappings.getExpression("password"));
+    }
+
+    @Test
+    void resolve__without_column_sorts_by_id() {
+        assertThat(sortMappings.resolve("", Order.DESC), contains(id.desc()));
+    }
+
+    @Test
+    void resolve__adds_the_id_as_tiebreaker() {
+        assertThat(sortMappings.resolve("name", Order.DESC), contains(name.desc(), id.asc()));
+    }
+
+    @Test
+    void resolve__sorts_by_many_columns() {
+        assertThat(sortMappings.resolve("-name, +email", Order.DESC), contains(name.desc(), email.asc(), id.asc()));
+    }
+
+    @Test
+    void resolve__does_not_repeat_the_id() {
+        assertThat(sortMappings.resolve("-id", Order.ASC), contains(id.desc()));
+    }
+
+    @Test
+    void resolve__rejects_unmapped_columns() {
+        assertThrows(CRUDZillaInvalidSort.class, () -> sortMappings.resolve("password", Order.ASC));
+    }
+
+    @Test
+    void resolve__downgrades_unindexed_columns() {
+        sortMappings.unindexedSortPolicy(SortMappings.UnindexedSortPolicy.DOWNGRADE);
+
+        assertThat(sortMappings.resolve("email,name", Order.ASC), contains(name.asc(), id.asc()));
+    }
+
+    @Test
+    void resolve__rejects_unindexed_columns() {
+        sortMappings.unindexedSortPolicy(SortMappings.UnindexedSortPolicy.REJECT);
+
+        assertThrows(CRUDZillaInvalidSort.class, () -> sortMappings.resolve("email", Order.ASC));
+    }
+}
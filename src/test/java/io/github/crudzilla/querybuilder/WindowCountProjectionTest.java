@@ -0,0 +1,80 @@
+package io.github.crudzilla.querybuilder;
+
+import com.querydsl.core.types.PathMetadataFactory;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.DefaultQueryHandler;
+import com.querydsl.jpa.sql.JPASQLQuery;
+import com.querydsl.sql.Configuration;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.RelationalPathBase;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WindowCountProjectionTest {
+
+    private static final Table user = new Table("user");
+
+    @Test
+    void fetch__brings_the_total_with_the_rows() {
+        var entityManager = mock(EntityManager.class);
+        when(entityManager.getEntityManagerFactory()).thenReturn(mock(EntityManagerFactory.class));
+        var nativeQuery = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(nativeQuery);
+        when(nativeQuery.getResultList()).thenReturn(List.of(new Object[]{1, "root", 42L}, new Object[]{2, "admin", 42L}));
+        var query = new JPASQLQuery<>(entityManager, new Configuration(H2Templates.DEFAULT), DefaultQueryHandler.DEFAULT)
+                .select(Projections.constructor(User.class, user.id, user.name)).from(user).limit(2);
+
+        var rows = new QueryShapeCache(10).fetch(entityManager, H2Templates.DEFAULT,
+                query.select(new WindowCountProjection<>(Projections.constructor(User.class, user.id, user.name))));
+
+        var sql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager).createNativeQuery(sql.capture());
+        assertThat(sql.getValue(), containsString("count(*) over ()"));
+        assertThat(rows.get(1).getRow().name, is("admin"));
+        assertThat(rows.get(1).getTotal(), is(42L));
+    }
+
+    @Test
+    void supports__only_queries_without_distinct() {
+        var query = new JPASQLQuery<>(mock(EntityManager.class), new Configuration(H2Templates.DEFAULT), DefaultQueryHandler.DEFAULT)
+                .select(user.id, user.name).from(user);
+
+        assertThat(WindowCountProjection.supports(query.getMetadata()), is(true));
+        assertThat(WindowCountProjection.supports(query.distinct().getMetadata()), is(false));
+    }
+
+    public static final class User {
+        final Integer id;
+        final String name;
+
+        public User(Integer id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static final class Table extends RelationalPathBase<Object> {
+        final NumberPath<Integer> id = Expressions.numberPath(Integer.class, PathMetadataFactory.forProperty(this, "id"));
+        final StringPath name = Expressions.stringPath(PathMetadataFactory.forProperty(this, "name"));
+
+        Table(String name) {
+            super(Object.class, name, "public", name);
+        }
+    }
+}
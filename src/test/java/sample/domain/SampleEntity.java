@@ -1,8 +1,10 @@
 package sample.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.github.crudzilla.CRUDZillaConfig;
 import io.github.crudzilla.CRUDZillaEntidadeSecurity;
 import io.github.crudzilla.CRUDZillaOperations;
+import io.github.crudzilla.CRUDZillaSearchField;
 import io.github.crudzilla.persistency.CRUDZillaEntity;
 
 import javax.persistence.*;
@@ -23,8 +25,12 @@ public class SampleEntity implements CRUDZillaEntity<Integer> {
 
     @NotBlank
     @Size(min = 1, max = 1000)
+    @CRUDZillaSearchField
     private String name;
 
+    @JsonIgnore
+    private String passwordHash;
+
     @Override
     public Integer getId() {
         return id;
@@ -46,4 +52,12 @@ public class SampleEntity implements CRUDZillaEntity<Integer> {
     public void setName(String name) {
         this.name = name;
     }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public void setPasswordHash(String passwordHash) {
+        this.passwordHash = passwordHash;
+    }
 }